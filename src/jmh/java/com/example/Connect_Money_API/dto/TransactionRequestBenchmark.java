@@ -0,0 +1,61 @@
+package com.example.Connect_Money_API.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+// what @Valid @RequestBody costs on POST /v1/transactions
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionRequestBenchmark {
+
+    private static final byte[] BODY = """
+            {"id":"txn_123456789","type":"TRANSFER","status":"COMPLETED","amount":100.50,"currency":"EGP","cardUid":"100003145552","createdAt":"2025-11-20"}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    private ObjectReader reader;
+    private Validator validator;
+    private TransactionRequest parsed;
+
+    @Setup
+    public void setUp() throws IOException {
+        reader = new ObjectMapper().registerModule(new JavaTimeModule()).readerFor(TransactionRequest.class);
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        parsed = reader.readValue(BODY);
+    }
+
+    @Benchmark
+    public TransactionRequest deserialize() throws IOException {
+        return reader.readValue(BODY);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TransactionRequest>> validate(){
+        return validator.validate(parsed);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TransactionRequest>> deserializeAndValidate() throws IOException {
+        TransactionRequest request = reader.readValue(BODY);
+        return validator.validate(request);
+    }
+}
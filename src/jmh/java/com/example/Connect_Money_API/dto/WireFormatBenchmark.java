@@ -0,0 +1,100 @@
+package com.example.Connect_Money_API.dto;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// JSON against CBOR and Smile for the bodies of POST /v1/transactions (items=1) and /batch.
+// The payload size of each is printed once at setup, the benchmarks are the parse and write cost.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"1", "1000"})
+    public int items;
+
+    private ObjectReader reader;
+    private ObjectWriter writer;
+    private Object body;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        // what Boot's builder does to the mapper of every format
+        ObjectMapper mapper = new ObjectMapper(factory)
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        if (items == 1) {
+            body = request(0);
+            reader = mapper.readerFor(TransactionRequest.class);
+        } else {
+            List<BatchTransactionItem> batch = new ArrayList<>();
+            for (int i = 0; i < items; i++) {
+                BatchTransactionItem item = new BatchTransactionItem();
+                item.setIdempotencyKey("key-" + i);
+                item.setTransaction(request(i));
+                batch.add(item);
+            }
+            body = batch;
+            reader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, BatchTransactionItem.class));
+        }
+        writer = mapper.writer();
+        bytes = writer.writeValueAsBytes(body);
+        System.out.printf("%n%s, %d item(s): %,d bytes%n", format, items, bytes.length);
+    }
+
+    @Benchmark
+    public Object parse() throws IOException {
+        return reader.readValue(bytes);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return writer.writeValueAsBytes(body);
+    }
+
+    private static TransactionRequest request(int i) {
+        TransactionRequest request = new TransactionRequest();
+        request.setId("txn_" + (123456789 + i));
+        request.setType("TRANSFER");
+        request.setStatus("COMPLETED");
+        request.setAmount(new BigDecimal("100.50"));
+        request.setCurrency("EGP");
+        request.setCardUid("100003145552");
+        request.setCreatedAt(LocalDate.of(2025, 11, 20));
+        return request;
+    }
+}
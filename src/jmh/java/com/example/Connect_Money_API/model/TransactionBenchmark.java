@@ -0,0 +1,53 @@
+package com.example.Connect_Money_API.model;
+
+import com.example.Connect_Money_API.dto.TransactionRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// request -> entity the way TransactionService.toTransaction does it, once per inserted row
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionBenchmark {
+
+    private TransactionRequest request;
+
+    @Setup
+    public void setUp(){
+        request = new TransactionRequest();
+        request.setId("txn_123456789");
+        request.setType("TRANSFER");
+        request.setStatus("COMPLETED");
+        request.setAmount(new BigDecimal("100.50"));
+        request.setCurrency("EGP");
+        request.setCardUid("100003145552");
+        request.setCreatedAt(LocalDate.of(2025, 11, 20));
+    }
+
+    @Benchmark
+    public Transaction build(){
+        return Transaction
+                .builder()
+                .transactionId(request.getId())
+                .type(request.getType())
+                .status(request.getStatus())
+                .amount(request.getAmount())
+                .cardUid(request.getCardUid())
+                .transactionDate(request.getCreatedAt())
+                .clientId("test_client")
+                .currency(request.getCurrency())
+                .build();
+    }
+}
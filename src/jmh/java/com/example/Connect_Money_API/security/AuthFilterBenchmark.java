@@ -0,0 +1,67 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.model.Client;
+import com.example.Connect_Money_API.repository.ClientRepository;
+import com.example.Connect_Money_API.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+
+// header parsing, token verification (cached after the first call), the revocation check (client from the
+// cache, a Bloom filter miss) and building the authentication
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthFilterBenchmark {
+
+    private AuthFilter filter;
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/transactions");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setUp(){
+        JwtService jwtService = JwtServiceBenchmark.jwtService();
+        filter = new AuthFilter(jwtService, tokenRevocations());
+        request.addHeader("Authorization", "Bearer " + jwtService.generateToken("test_client"));
+    }
+
+    // no database: the client is always there and active, nothing is revoked so the table is never asked
+    static TokenRevocations tokenRevocations(){
+        Client client = Client.builder().clientId("test_client").active(true).build();
+        ClientRepository clients = (ClientRepository) Proxy.newProxyInstance(ClientRepository.class.getClassLoader(),
+                new Class<?>[]{ClientRepository.class},
+                (proxy, method, args) -> method.getName().equals("findClientByClientId") ? Optional.of(client) : null);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new TokenRevocations(new RevokedTokenRepository(new JdbcTemplate()), clients,
+                new ClientCache(clients, registry, 100_000, 60_000), new SecurityMetrics(registry),
+                1_000_000, 0.001, 3_600_000, 10_000, 3_600_000);
+    }
+
+    @Benchmark
+    public Object doFilter() throws ServletException, IOException {
+        filter.doFilter(request, response, chain);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext(); // next call is a new request
+        return authentication;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.Connect_Money_API.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+// the token calls of every request, extractAllClaims/isTokenValid always check the signature,
+// verify() is what AuthFilter uses and is mostly a cache hit
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp(){
+        jwtService = jwtService();
+        token = jwtService.generateToken("test_client");
+    }
+
+    @Benchmark
+    public String generateToken(){
+        return jwtService.generateToken("test_client");
+    }
+
+    @Benchmark
+    public Claims extractAllClaims(){
+        return jwtService.extractAllClaims(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid(){
+        return jwtService.isTokenValid(token);
+    }
+
+    @Benchmark
+    public Object verifyCached(){
+        return jwtService.verify(token);
+    }
+
+    static JwtService jwtService(){
+        JwtService jwtService = new JwtService(100_000, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "secret", "benchmark_secret_key_that_is_long_enough_for_hs256");
+        ReflectionTestUtils.setField(jwtService, "expiration", 3_600_000L);
+        return jwtService;
+    }
+}
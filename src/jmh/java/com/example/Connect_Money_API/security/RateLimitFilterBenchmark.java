@@ -0,0 +1,57 @@
+package com.example.Connect_Money_API.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+
+// few IPs = the buckets stay in cache, many IPs = every call is a cache miss in the bucket store
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitFilterBenchmark {
+
+    @Param({"16", "1000000"})
+    private int distinctIps;
+
+    private RateLimitFilter filter;
+    private String[] ips;
+    private int next;
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/transactions");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setUp(){
+        // big enough that nothing is ever limited, we measure the lookup and the bookkeeping
+        filter = new RateLimitFilter(new CompactBucketStore(Long.MAX_VALUE >>> 33, 1, 60, 2 * distinctIps),
+                new SecurityMetrics(new SimpleMeterRegistry()));
+        ips = new String[distinctIps];
+        for (int i = 0; i < distinctIps; i++) {
+            ips[i] = "10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff);
+        }
+    }
+
+    @Benchmark
+    public int doFilter() throws ServletException, IOException {
+        request.setRemoteAddr(ips[next]);
+        next = next + 1 == ips.length ? 0 : next + 1;
+        filter.doFilter(request, response, chain); // OncePerRequestFilter -> doFilterInternal
+        return response.getStatus();
+    }
+}
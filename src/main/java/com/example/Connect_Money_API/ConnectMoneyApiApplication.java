@@ -1,13 +1,33 @@
 package com.example.Connect_Money_API;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+import java.util.Arrays;
 
 @SpringBootApplication
 public class ConnectMoneyApiApplication {
 
 	public static void main(String[] args) {
+		if (new SimpleCommandLinePropertySource(args).containsProperty("rebuild-rollups")) {
+			// RollupRebuildService runs on startup, then the app exits with its exit code
+			System.exit(SpringApplication.exit(rebuildRollups(args)));
+		}
 		SpringApplication.run(ConnectMoneyApiApplication.class, args);
 	}
 
+	// no web server and no scheduled jobs, nothing else should run next to the rebuild.
+	// As an argument because application.yaml would win over a default property
+	static ConfigurableApplicationContext rebuildRollups(String... args) {
+		String[] oneShot = Arrays.copyOf(args, args.length + 1);
+		oneShot[args.length] = "--scheduling.enabled=false";
+		return new SpringApplicationBuilder(ConnectMoneyApiApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(oneShot);
+	}
+
 }
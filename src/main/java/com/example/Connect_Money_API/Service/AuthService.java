@@ -1,75 +1,57 @@
 package com.example.Connect_Money_API.Service;
 
+import com.example.Connect_Money_API.dto.RevokeAllTokensRequest;
 import com.example.Connect_Money_API.dto.TokenRequest;
 import com.example.Connect_Money_API.dto.TokenResponse;
-import com.example.Connect_Money_API.model.Client;
-import com.example.Connect_Money_API.repository.ClientRepository;
+import com.example.Connect_Money_API.dto.TokenRevocationRequest;
+import com.example.Connect_Money_API.security.ClientCache;
+import com.example.Connect_Money_API.security.ClientCache.ClientSnapshot;
+import com.example.Connect_Money_API.security.CredentialVerifier;
 import com.example.Connect_Money_API.security.JwtService;
-import jakarta.transaction.Transactional;
+import com.example.Connect_Money_API.security.LoginAttemptTracker;
+import com.example.Connect_Money_API.security.SecurityMetrics;
+import com.example.Connect_Money_API.security.TokenRevocations;
+import com.example.Connect_Money_API.security.VerifiedToken;
+import io.micrometer.core.instrument.Timer;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.Date;
+import java.util.Optional;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class AuthService {
-    private final ClientRepository clientRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final ClientCache clientCache;
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final CredentialVerifier credentialVerifier;
     private final JwtService jwtService;
+    private final SecurityMetrics securityMetrics;
+    private final TokenRevocations tokenRevocations;
 
     @Value("${security.jwt.expiration_time}")
     private Long tokenExpiration;
 
-    @Value("${security.client-credentials.max-number-of-attempts}")
-    private int maxAttempts;
-
-    @Value("${security.client-credentials.lockout-duration-time}")
-    private int lockoutDuration;
-
-    @Transactional
     public TokenResponse authenticate(TokenRequest request){
-        Client client = clientRepository.findClientByClientId(request.getClientId())
-                .orElseThrow(() -> new SecurityException("Invalid data"));
-
-        if(!client.getActive()){
-            log.error("Authentication can't be done the user: {} is inactive", request.getClientId());
-            throw new SecurityException("Client isn't active");
-        }
-
-        //Compare plain password m3a hashed pass
-        if(!passwordEncoder.matches(request.getClientSecret(), client.getClientSecret())){
-            log.error("Invalid password");
-            failedAuthAction(client);
-            throw new SecurityException("Invalid password");
-        }
-
-        if (client.getLockedUntil() != null &&
-                client.getLockedUntil().isAfter(LocalDateTime.now())) {
-            log.warn("The account of the user {} is locked due to many attempts", request.getClientId());
-            throw new SecurityException("Account is locked for while");
-        }
-
-        if (client.getLockedUntil() != null &&
-                client.getLockedUntil().isBefore(LocalDateTime.now())) {
-            client.setLockedUntil(null);
-            client.setFailedAttempts(0);
-        }
-
-        String token = jwtService.generateToken(client.getClientId());
-
-        if(client.getFailedAttempts() >= 1){
-            client.setFailedAttempts(0);
-            client.setLockedUntil(null);
-            clientRepository.save(client);
+        Timer.Sample sample = Timer.start();
+        try {
+            TokenResponse response = issueToken(request);
+            sample.stop(securityMetrics.authTimer(true));
+            return response;
+        } catch (RuntimeException e) {
+            sample.stop(securityMetrics.authTimer(false));
+            throw e;
         }
+    }
 
+    private TokenResponse issueToken(TokenRequest request){
+        ClientSnapshot client = verifiedClient(request.getClientId(), request.getClientSecret());
+        String token = jwtService.generateToken(client.clientId());
 
         return TokenResponse.builder()
                 .accessToken(token)
@@ -78,15 +60,49 @@ public class AuthService {
                 .build();
     }
 
-    private void failedAuthAction(Client clt){
-        clt.setFailedAttempts(clt.getFailedAttempts() + 1);
+    // like RFC 7009 an unknown, expired or someone else's token is no error, there's just nothing to revoke
+    public void revoke(TokenRevocationRequest request){
+        ClientSnapshot client = verifiedClient(request.getClientId(), request.getClientSecret());
+        Optional<VerifiedToken> token = jwtService.verify(request.getToken());
+        if (token.isEmpty() || !client.clientId().equals(token.get().clientId())) {
+            log.warn("The user {} asked to revoke a token that isn't theirs or isn't valid", client.clientId());
+            return;
+        }
+        tokenRevocations.revoke(token.get());
+    }
 
-        if (clt.getFailedAttempts() >= maxAttempts){
-            clt.setLockedUntil(LocalDateTime.now().plusSeconds(lockoutDuration));
-            log.warn("Client is locked due to many failed attempts from user {}", clt.getClientId());
+    public void revokeAll(RevokeAllTokensRequest request){
+        ClientSnapshot client = verifiedClient(request.getClientId(), request.getClientSecret());
+        LocalDateTime now = LocalDateTime.now();
+        // a watermark in the future would also block the tokens issued until then
+        LocalDateTime before = request.getBefore() == null || request.getBefore().isAfter(now) ? now : request.getBefore();
+        tokenRevocations.revokeAllBefore(client.clientId(), before);
+    }
+
+    private ClientSnapshot verifiedClient(String clientId, String clientSecret){
+        ClientSnapshot client = clientCache.get(clientId)
+                .orElseThrow(() -> new SecurityException("Invalid data"));
+
+        if(!client.active()){
+            log.error("Authentication can't be done the user: {} is inactive", clientId);
+            throw new SecurityException("Client isn't active");
+        }
+
+        // checked before the secret, a locked client doesn't cost a hash
+        if (loginAttemptTracker.isLocked(client)) {
+            log.warn("The account of the user {} is locked due to many attempts", clientId);
+            throw new SecurityException("Account is locked for while");
+        }
+
+        //Compare plain password m3a hashed pass
+        if(!credentialVerifier.matches(client.clientId(), clientSecret, client.clientSecret())){
+            log.error("Invalid password");
+            loginAttemptTracker.failed(client);
+            throw new SecurityException("Invalid password");
         }
 
-        clientRepository.save(clt);
+        loginAttemptTracker.succeeded(client);
+        return client;
     }
 
 }
@@ -0,0 +1,68 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.util.KeyDigest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+// Recently processed idempotency keys, so a client retry doesn't need a DB read.
+// Only keys that are committed in the DB are put here, a miss always falls back to the table.
+@Component
+@Slf4j
+public class IdempotencyKeyCache {
+
+    private final Cache<KeyDigest, ProcessedKey> processedKeys;
+
+    public IdempotencyKeyCache(@Value("${transactions.idempotency-cache.max-size}") long maxSize,
+                               @Value("${transactions.idempotency-cache.ttl}") long ttlSeconds,
+                               MeterRegistry meterRegistry){
+        this.processedKeys = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        // cache.gets{result=hit|miss}, cache.evictions ... tagged with cache=idempotency_keys
+        CaffeineCacheMetrics.monitor(meterRegistry, processedKeys, "idempotency_keys");
+    }
+
+    public boolean isProcessed(String idempotencyKey){
+        return get(idempotencyKey) != null;
+    }
+
+    // null if the key isn't in the cache
+    public ProcessedKey get(String idempotencyKey){
+        return processedKeys.getIfPresent(KeyDigest.of(idempotencyKey));
+    }
+
+    public void markProcessed(String idempotencyKey, String transactionId, int responseStatus){
+        processedKeys.put(KeyDigest.of(idempotencyKey), new ProcessedKey(transactionId, responseStatus));
+    }
+
+    // if the DB transaction rolls back the key must not be cached, so wait for the commit
+    public void markProcessedAfterCommit(String idempotencyKey, String transactionId, int responseStatus){
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markProcessed(idempotencyKey, transactionId, responseStatus);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markProcessed(idempotencyKey, transactionId, responseStatus);
+            }
+        });
+    }
+
+    // what the first request with the key created and answered, replays get the same
+    public record ProcessedKey(String transactionId, int responseStatus) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.repository.IdempotencyKeyPurgeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Deletes idempotency keys older than the retention. A replay after that is treated as a new request,
+// so keep the retention longer than any client retries (the transaction id still catches most duplicates).
+// Small chunks, each one its own statement and commit, with a pause in between: no long row locks and
+// the replicas get every chunk as a small event instead of one huge delete.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "transactions.idempotency-purge.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyKeyPurgeService {
+
+    private final IdempotencyKeyPurgeRepository purgeRepository;
+    private final Duration retention;
+    private final int chunkSize;
+    private final long chunkPauseMillis;
+    private final long maxPerRun;
+    private final Counter purged;
+    private final AtomicLong tableRows = new AtomicLong();
+
+    public IdempotencyKeyPurgeService(IdempotencyKeyPurgeRepository purgeRepository,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${transactions.idempotency-purge.retention}") long retentionHours,
+                                      @Value("${transactions.idempotency-purge.chunk-size}") int chunkSize,
+                                      @Value("${transactions.idempotency-purge.chunk-pause}") long chunkPauseMillis,
+                                      @Value("${transactions.idempotency-purge.max-per-run}") long maxPerRun) {
+        this.purgeRepository = purgeRepository;
+        this.retention = Duration.ofHours(retentionHours);
+        this.chunkSize = chunkSize;
+        this.chunkPauseMillis = chunkPauseMillis;
+        this.maxPerRun = maxPerRun;
+
+        this.purged = Counter.builder("idempotency.keys.purged")
+                .description("Idempotency keys deleted after the retention")
+                .register(meterRegistry);
+        Gauge.builder("idempotency.keys.rows", tableRows, AtomicLong::get)
+                .description("Rows in idempotency_keys after the last purge, estimated on MySQL")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${transactions.idempotency-purge.interval}")
+    public void purgeExpired() {
+        try {
+            purge(LocalDateTime.now().minus(retention));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Idempotency key purge failed, trying again next run", e);
+        }
+    }
+
+    // number of keys deleted, at most max-per-run so one run never goes on for hours after a long outage
+    public long purge(LocalDateTime before) throws InterruptedException {
+        long start = System.nanoTime();
+        long deleted = 0;
+        while (deleted < maxPerRun) {
+            List<String> keys = purgeRepository.findExpiredKeys(before, (int) Math.min(chunkSize, maxPerRun - deleted));
+            if (keys.isEmpty()) {
+                break;
+            }
+            int rows = purgeRepository.deleteKeys(keys);
+            deleted += rows;
+            purged.increment(rows);
+            if (keys.size() < chunkSize) {
+                break;
+            }
+            Thread.sleep(chunkPauseMillis);
+        }
+
+        tableRows.set(purgeRepository.estimateRows());
+        if (deleted > 0) {
+            log.info("Purged {} idempotency keys created before {} in {} ms, about {} left",
+                    deleted, before, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), tableRows.get());
+        }
+        return deleted;
+    }
+}
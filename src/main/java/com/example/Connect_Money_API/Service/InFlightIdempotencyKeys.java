@@ -0,0 +1,88 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.dto.TransactionResult;
+import com.example.Connect_Money_API.exception.ServiceBusyException;
+import com.example.Connect_Money_API.util.KeyDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Idempotency keys being processed on this node right now. A mobile client often retries before the first
+// attempt committed, without this both would run the transaction and the second would wait on the key row's
+// lock in the DB. Here the retry waits for the first attempt's outcome instead and gets the same one:
+// its result as a replay, or the exception it failed with. No query of its own.
+// process() is called around the @Transactional service, so the outcome is only handed out after the commit
+// (by then the key is in IdempotencyKeyCache too). Retries that land on another node still meet in the DB.
+@Component
+@Slf4j
+public class InFlightIdempotencyKeys {
+
+    private final ConcurrentHashMap<KeyDigest, CompletableFuture<TransactionResult>> inFlight = new ConcurrentHashMap<>();
+    private final TransactionMetrics transactionMetrics;
+    private final long waitTimeoutMillis;
+    private final long retryAfterSeconds;
+
+    public InFlightIdempotencyKeys(TransactionMetrics transactionMetrics,
+                                   @Value("${transactions.idempotency-in-flight.wait-timeout}") long waitTimeoutMillis,
+                                   @Value("${transactions.idempotency-in-flight.retry-after}") long retryAfterSeconds){
+        this.transactionMetrics = transactionMetrics;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public TransactionResult process(String idempotencyKey, Supplier<TransactionResult> process){
+        KeyDigest key = KeyDigest.of(idempotencyKey);
+        CompletableFuture<TransactionResult> mine = new CompletableFuture<>();
+        CompletableFuture<TransactionResult> first = inFlight.putIfAbsent(key, mine);
+        if (first != null) {
+            return waitFor(first);
+        }
+
+        // the entry goes away whatever happens, waiters that timed out already don't hold on to it
+        try {
+            TransactionResult result = process.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public int size(){
+        return inFlight.size();
+    }
+
+    private TransactionResult waitFor(CompletableFuture<TransactionResult> first){
+        log.info("The key is being processed by another request, waiting for its outcome");
+        try {
+            TransactionResult result = first.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            transactionMetrics.inFlightReplayed();
+            return TransactionResult.builder()
+                    .transactionId(result.getTransactionId())
+                    .status(result.getStatus())
+                    .replayed(true)
+                    .build();
+        } catch (ExecutionException e) {
+            // same outcome as the first attempt
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("The first request with this key failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceBusyException("The first request with this key is still being processed", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for the first request with this key", retryAfterSeconds);
+        }
+    }
+}
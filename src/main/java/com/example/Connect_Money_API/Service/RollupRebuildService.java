@@ -0,0 +1,83 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.repository.TransactionRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Recomputes transaction_daily_rollup from the transactions table, in case it ever drifts.
+// Run it with: java -jar connect-money-api.jar --rebuild-rollups, the app then starts without the web server
+// and the scheduled jobs (see ConnectMoneyApiApplication) and exits when it's done.
+// The work is split in (client, chunk-days) pieces that run in parallel, every piece is its own DB
+// transaction and touches rollup rows no other piece does. Inserts that come in meanwhile wait for
+// the piece of their client and day to commit and then add to the rebuilt row.
+@Service
+@Slf4j
+public class RollupRebuildService implements ApplicationRunner {
+
+    private final TransactionRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int threads;
+    private final int chunkDays;
+
+    public RollupRebuildService(TransactionRollupRepository rollupRepository,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${transactions.rollup.rebuild.threads}") int threads,
+                                @Value("${transactions.rollup.rebuild.chunk-days}") int chunkDays) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.threads = threads;
+        this.chunkDays = chunkDays;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption("rebuild-rollups")) {
+            return;
+        }
+        rebuild();
+    }
+
+    // number of rollup rows written
+    public long rebuild() throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        AtomicLong written = new AtomicLong();
+        List<Future<?>> pieces = new ArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (String clientId : rollupRepository.findClientIds()) {
+                LocalDate[] range = rollupRepository.findDateRange(clientId);
+                if (range[0] == null) {
+                    continue;
+                }
+                for (LocalDate from = range[0]; !from.isAfter(range[1]); from = from.plusDays(chunkDays)) {
+                    LocalDate pieceFrom = from;
+                    LocalDate pieceTo = from.plusDays(chunkDays - 1);
+                    pieces.add(executor.submit(() -> written.addAndGet(
+                            transactionTemplate.execute(status -> rollupRepository.rebuild(clientId, pieceFrom, pieceTo)))));
+                }
+            }
+            for (Future<?> piece : pieces) {
+                piece.get(); // the first failure stops the rebuild, the pieces that committed are correct anyway
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("Rebuilt {} rollup rows in {} pieces in {} ms", written.get(), pieces.size(), (System.nanoTime() - start) / 1_000_000);
+        return written.get();
+    }
+}
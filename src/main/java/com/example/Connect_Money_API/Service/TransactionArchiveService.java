@@ -0,0 +1,122 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.repository.TransactionPartitionRepository;
+import com.example.Connect_Money_API.repository.TransactionPartitionRepository.MonthPartition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Keeps the monthly partitions of transactions ahead of the calendar and moves months past the
+// retention to transactions_archive.
+// With partitions (MySQL) an old month is swapped out whole with EXCHANGE PARTITION, which only touches
+// metadata, and then copied to the archive from transactions_exchange in batches, so the bulk work never
+// touches the table the inserts go to. Without them (H2) the old rows are moved in batches straight from
+// transactions. Each batch is its own DB transaction, a crash in between just leaves the rest for the next run.
+// With several nodes keep it on for one of them only (transactions.partitioning.maintenance.enabled).
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "transactions.partitioning.maintenance.enabled", havingValue = "true", matchIfMissing = true)
+public class TransactionArchiveService {
+
+    private final TransactionPartitionRepository partitionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final int batchSize;
+    private final long batchPauseMillis;
+
+    public TransactionArchiveService(TransactionPartitionRepository partitionRepository,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${transactions.partitioning.months-ahead}") int monthsAhead,
+                                     @Value("${transactions.partitioning.retention-months}") int retentionMonths,
+                                     @Value("${transactions.partitioning.archive-batch-size}") int batchSize,
+                                     @Value("${transactions.partitioning.archive-batch-pause}") long batchPauseMillis) {
+        this.partitionRepository = partitionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.batchSize = batchSize;
+        this.batchPauseMillis = batchPauseMillis;
+    }
+
+    @Scheduled(cron = "${transactions.partitioning.maintenance.cron}")
+    public void maintain() {
+        try {
+            LocalDate today = LocalDate.now();
+            createPartitions(today);
+            archive(today);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // another node doing the same thing, a lock timeout... the next run picks up where this one stopped
+            log.error("Partition maintenance failed", e);
+        }
+    }
+
+    // number of partitions added, 0 when the table isn't partitioned
+    public int createPartitions(LocalDate today) {
+        List<MonthPartition> partitions = partitionRepository.findPartitions();
+        if (partitions.size() < 2) {
+            return 0;
+        }
+
+        LocalDate next = partitions.get(partitions.size() - 2).lessThan(); // the one before p_future
+        LocalDate until = today.withDayOfMonth(1).plusMonths(monthsAhead + 1);
+        int added = 0;
+        for (; next.isBefore(until); next = next.plusMonths(1)) {
+            partitionRepository.addPartition(next);
+            added++;
+        }
+        if (added > 0) {
+            log.info("Added {} transaction partitions, up to {}", added, next);
+        }
+        return added;
+    }
+
+    // number of rows moved to transactions_archive
+    public long archive(LocalDate today) throws InterruptedException {
+        LocalDate cutoff = today.withDayOfMonth(1).minusMonths(retentionMonths);
+        List<MonthPartition> partitions = partitionRepository.findPartitions();
+
+        long moved;
+        if (partitions.isEmpty()) {
+            moved = moveInBatches(() -> partitionRepository.moveExpired(cutoff, batchSize));
+        } else {
+            moved = moveInBatches(() -> partitionRepository.moveExchanged(batchSize)); // left over from a run that stopped
+            for (MonthPartition partition : partitions) {
+                if (partition.lessThan() == null || partition.lessThan().isAfter(cutoff)) {
+                    break;
+                }
+                partitionRepository.exchangePartition(partition.name());
+                partitionRepository.dropPartition(partition.name());
+                moved += moveInBatches(() -> partitionRepository.moveExchanged(batchSize));
+                log.info("Archived transaction partition {}", partition.name());
+            }
+        }
+
+        if (moved > 0) {
+            log.info("Moved {} transactions dated before {} to the archive", moved, cutoff);
+        }
+        return moved;
+    }
+
+    private long moveInBatches(BatchMove batch) throws InterruptedException {
+        long moved = 0;
+        int rows;
+        while ((rows = transactionTemplate.execute(status -> batch.move())) > 0) {
+            moved += rows;
+            Thread.sleep(batchPauseMillis); // let the replicas and the buffer pool catch up
+        }
+        return moved;
+    }
+
+    private interface BatchMove {
+        int move();
+    }
+}
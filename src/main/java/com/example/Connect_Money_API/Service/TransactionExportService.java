@@ -0,0 +1,177 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.dto.ExportFormat;
+import com.example.Connect_Money_API.model.TransactionStatus;
+import com.example.Connect_Money_API.model.TransactionType;
+import com.example.Connect_Money_API.util.DatabaseVendor;
+import com.example.Connect_Money_API.util.MinorUnits;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes a client's transactions to the stream row by row while they come out of a forward only cursor.
+// No entities and no list, so the heap doesn't care if it's a thousand rows or ten millions.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TransactionExportService {
+
+    private static final String[] COLUMNS = {"id", "type", "status", "amount", "currency", "cardUid", "createdAt"};
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public long export(String clientId, LocalDate from, LocalDate to, ExportFormat format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder("""
+                SELECT transaction_id, type, status, amount, currency, card_uid, transaction_date
+                FROM transactions WHERE client_id = (SELECT id FROM client WHERE client_id = ?)""");
+        List<Object> params = new ArrayList<>(List.of(clientId));
+        if (from != null) {
+            sql.append(" AND transaction_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND transaction_date <= ?");
+            params.add(Date.valueOf(to));
+        }
+        sql.append(" ORDER BY transaction_date, id"); // idx_client_date_id order, no filesort
+
+        RowWriter writer = format == ExportFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+        long[] rows = {0};
+        jdbcTemplate.query(connection -> streamingStatement(connection, sql.toString(), params), (RowCallbackHandler) rs -> {
+            try {
+                writer.write(rs);
+                rows[0]++;
+            } catch (IOException e) {
+                // mostly the client went away, stop reading from the DB too
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.finish();
+
+        log.info("Exported {} transactions as {} for the user {}", rows[0], format, clientId);
+        return rows[0];
+    }
+
+    private PreparedStatement streamingStatement(Connection connection, String sql, List<Object> params) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // Connector/J only streams row by row with MIN_VALUE, any other fetch size reads the whole result first
+        boolean mysql = DatabaseVendor.isMySql(connection.getMetaData());
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+        for (int i = 0; i < params.size(); i++) {
+            statement.setObject(i + 1, params.get(i));
+        }
+        return statement;
+    }
+
+    // the row is stored compact (codes, minor units), the export is the same as the API
+    private static String type(ResultSet rs) throws SQLException {
+        return TransactionType.fromCode(rs.getByte(2)).name();
+    }
+
+    private static String status(ResultSet rs) throws SQLException {
+        return TransactionStatus.fromCode(rs.getByte(3)).name();
+    }
+
+    private static BigDecimal amount(ResultSet rs) throws SQLException {
+        return MinorUnits.fromMinor(rs.getLong(4), rs.getString(5));
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setRootValueSeparator(null); // we put the newline ourselves, not a space
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeStringField(COLUMNS[0], rs.getString(1));
+            generator.writeStringField(COLUMNS[1], type(rs));
+            generator.writeStringField(COLUMNS[2], status(rs));
+            generator.writeNumberField(COLUMNS[3], amount(rs));
+            generator.writeStringField(COLUMNS[4], rs.getString(5));
+            generator.writeStringField(COLUMNS[5], rs.getString(6));
+            generator.writeStringField(COLUMNS[6], rs.getDate(7).toLocalDate().toString());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(escape(rs.getString(1)));
+            writer.write(',');
+            writer.write(type(rs));
+            writer.write(',');
+            writer.write(status(rs));
+            writer.write(',');
+            writer.write(amount(rs).toPlainString());
+            writer.write(',');
+            writer.write(escape(rs.getString(5)));
+            writer.write(',');
+            writer.write(escape(rs.getString(6)));
+            writer.write(',');
+            writer.write(rs.getDate(7).toLocalDate().toString());
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        // RFC 4180, quote when needed and double the quotes inside
+        private static String escape(String value){
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
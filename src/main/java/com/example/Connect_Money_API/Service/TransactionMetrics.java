@@ -0,0 +1,96 @@
+package com.example.Connect_Money_API.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Meters of the transaction write path, tags are fixed values only (no transaction ids or keys)
+@Component
+public class TransactionMetrics {
+
+    private final Timer idempotencyLookup;
+    private final Timer keySave;
+    private final Timer commit;
+    private final Timer processCreated;
+    private final Timer processReplayed;
+    private final Counter singleReplays;
+    private final Counter batchReplays;
+    private final Counter asyncReplays;
+    private final Counter inFlightReplays;
+
+    public TransactionMetrics(MeterRegistry meterRegistry){
+        this.idempotencyLookup = stage(meterRegistry, "idempotency_lookup");
+        this.keySave = stage(meterRegistry, "key_save");
+        this.commit = stage(meterRegistry, "commit");
+        // the whole call including the commit, measured around the service
+        this.processCreated = Timer.builder("transactions.process").tag("result", "created").register(meterRegistry);
+        this.processReplayed = Timer.builder("transactions.process").tag("result", "replayed").register(meterRegistry);
+        this.singleReplays = replays(meterRegistry, "single");
+        this.batchReplays = replays(meterRegistry, "batch");
+        this.asyncReplays = replays(meterRegistry, "async");
+        this.inFlightReplays = replays(meterRegistry, "in_flight");
+    }
+
+    public Timer idempotencyLookup(){
+        return idempotencyLookup;
+    }
+
+    public Timer keySave(){
+        return keySave;
+    }
+
+    // the transaction row only goes out with the flush at commit, so the commit (flush included) is the insert's stage
+    public void recordCommit(){
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private Timer.Sample sample;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                sample = Timer.start();
+            }
+
+            @Override
+            public void afterCommit() {
+                if (sample != null) {
+                    sample.stop(commit);
+                }
+            }
+        });
+    }
+
+    public Timer process(boolean replayed){
+        return replayed ? processReplayed : processCreated;
+    }
+
+    public void replayed(){
+        singleReplays.increment();
+    }
+
+    public void batchReplayed(int count){
+        batchReplays.increment(count);
+    }
+
+    public void asyncReplayed(){
+        asyncReplays.increment();
+    }
+
+    // a retry that waited for the first attempt still running on this node
+    public void inFlightReplayed(){
+        inFlightReplays.increment();
+    }
+
+    private static Timer stage(MeterRegistry meterRegistry, String stage){
+        return Timer.builder("transactions.process.stage").tag("stage", stage).register(meterRegistry);
+    }
+
+    private static Counter replays(MeterRegistry meterRegistry, String path){
+        return Counter.builder("transactions.idempotent_replays").tag("path", path).register(meterRegistry);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.dto.DailySummary;
+import com.example.Connect_Money_API.dto.TransactionFilter;
+import com.example.Connect_Money_API.dto.TransactionPageResponse;
+import com.example.Connect_Money_API.dto.TransactionResponse;
+import com.example.Connect_Money_API.model.Transaction;
+import com.example.Connect_Money_API.model.TransactionStatus;
+import com.example.Connect_Money_API.model.TransactionType;
+import com.example.Connect_Money_API.repository.TransactionRepository;
+import com.example.Connect_Money_API.repository.TransactionRollupRepository;
+import com.example.Connect_Money_API.util.TransactionCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class TransactionQueryService {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionRollupRepository rollupRepository;
+
+    @Transactional(readOnly = true)
+    public TransactionPageResponse findTransactions(String clientId, TransactionFilter filter, TransactionCursor after, int pageSize){
+        // type and status are stored as codes, a name that isn't one can't match anything
+        if ((filter.getType() != null && !TransactionType.isKnown(filter.getType()))
+                || (filter.getStatus() != null && !TransactionStatus.isKnown(filter.getStatus()))) {
+            return TransactionPageResponse.builder().transactions(List.of()).build();
+        }
+
+        // one extra row tells us if there's a next page without a count query
+        List<Transaction> rows = transactionRepository.findPage(clientId,
+                after == null ? null : after.transactionDate(),
+                after == null ? null : after.id(),
+                filter.getFrom(), filter.getTo(), filter.getStatus(), filter.getType(), filter.getCardUid(),
+                Limit.of(pageSize + 1));
+
+        boolean hasNext = rows.size() > pageSize;
+        List<Transaction> page = hasNext ? rows.subList(0, pageSize) : rows;
+        Transaction last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return TransactionPageResponse.builder()
+                .transactions(page.stream().map(this::toResponse).toList())
+                .nextCursor(hasNext ? new TransactionCursor(last.getTransactionDate(), last.getId()).encode() : null)
+                .build();
+    }
+
+    // a row per day and currency/type/status, however many transactions there are
+    @Transactional(readOnly = true)
+    public List<DailySummary> getSummary(String clientId, TransactionFilter filter){
+        return rollupRepository.findSummary(clientId, filter);
+    }
+
+    private TransactionResponse toResponse(Transaction transaction){
+        return TransactionResponse.builder()
+                .id(transaction.getTransactionId())
+                .type(transaction.getType())
+                .status(transaction.getStatus())
+                .amount(transaction.getAmount())
+                .currency(transaction.getCurrency())
+                .cardUid(transaction.getCardUid())
+                .createdAt(transaction.getTransactionDate())
+                .build();
+    }
+}
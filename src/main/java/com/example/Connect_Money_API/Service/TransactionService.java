@@ -1,19 +1,39 @@
 package com.example.Connect_Money_API.Service;
 
+import com.example.Connect_Money_API.dto.BatchItemResult;
+import com.example.Connect_Money_API.dto.BatchItemStatus;
+import com.example.Connect_Money_API.dto.BatchTransactionItem;
+import com.example.Connect_Money_API.dto.BatchTransactionResponse;
 import com.example.Connect_Money_API.dto.TransactionRequest;
+import com.example.Connect_Money_API.dto.TransactionResult;
 import com.example.Connect_Money_API.model.IdempotencyKey;
 import com.example.Connect_Money_API.model.Transaction;
 import com.example.Connect_Money_API.repository.IdempotencyKeyRepository;
+import com.example.Connect_Money_API.repository.TransactionIdRepository;
 import com.example.Connect_Money_API.repository.TransactionRepository;
+import com.example.Connect_Money_API.repository.TransactionRollupRepository;
 import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -21,22 +41,221 @@ import java.util.Optional;
 public class TransactionService {
 
     private final TransactionRepository transactionRepository;
+    private final TransactionIdRepository transactionIdRepository;
     private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionRollupRepository rollupRepository;
+    private final IdempotencyKeyCache idempotencyKeyCache;
+    private final TransactionMetrics transactionMetrics;
+    private final Validator validator;
+    private final JdbcTemplate jdbcTemplate;
 
     @Transactional
-    public void transactionProcess(String idempotencyKey, TransactionRequest request){
-        var existingKey = idempotencyKeyRepository.findIdempotencyKeyByIdempotencyKey(idempotencyKey);
+    public TransactionResult transactionProcess(String idempotencyKey, TransactionRequest request){
+        // retries come within seconds most of the time, so check the memory first
+        IdempotencyKeyCache.ProcessedKey cached = transactionMetrics.idempotencyLookup().record(() -> idempotencyKeyCache.get(idempotencyKey));
+        if(cached != null){
+            log.info("The key is duplicated so the process is done before");
+            transactionMetrics.replayed();
+            return replayed(cached.transactionId(), cached.responseStatus());
+        }
 
-        //To avoid duplication of the transaction
-        if(existingKey.isPresent() && existingKey.get().getProcessed()){
+        // claim the key and learn if it was used before in the same statement, the key row is written
+        // with the outcome already because it's rolled back together with the transaction if that fails
+        int reserved = transactionMetrics.keySave().record(() -> idempotencyKeyRepository.reserve(idempotencyKey, request.getId(), HttpStatus.OK.value()));
+        if(reserved == 0){
+            //To avoid duplication of the transaction
+            IdempotencyKey existingKey = transactionMetrics.idempotencyLookup().record(() -> idempotencyKeyRepository.findById(idempotencyKey))
+                    .orElseThrow(() -> new IllegalStateException("Idempotency key vanished after the reservation"));
             log.info("The key is duplicated so the process is done before");
-            return;
+            idempotencyKeyCache.markProcessed(idempotencyKey, existingKey.getTransactionId(), existingKey.getResponseStatus());
+            transactionMetrics.replayed();
+            return replayed(existingKey.getTransactionId(), existingKey.getResponseStatus());
         }
 
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String clientId = auth.getName(); //this is linked to the data we set in the Auth filter
 
-        Transaction transaction = Transaction
+        Transaction transaction = toTransaction(request, clientId);
+
+        // a transaction id used before (in any partition or the archive) fails here with a 409
+        transactionIdRepository.claim(List.of(transaction.getTransactionId()));
+        transactionRepository.save(transaction);
+        rollupRepository.increment(List.of(transaction));
+        transactionMetrics.recordCommit();
+        idempotencyKeyCache.markProcessedAfterCommit(idempotencyKey, request.getId(), HttpStatus.OK.value());
+
+        log.info("Transaction is successfully doneeeeee :D {} for the user {}", request.getId(), clientId);
+        return TransactionResult.builder()
+                .transactionId(request.getId())
+                .status(HttpStatus.OK.value())
+                .replayed(false)
+                .build();
+    }
+
+    @Transactional
+    public BatchTransactionResponse batchProcess(List<BatchTransactionItem> items){
+        return batchProcess(SecurityContextHolder.getContext().getAuthentication().getName(), items);
+    }
+
+    // the journal drainer has no security context, it passes the client the entries were accepted for
+    @Transactional
+    public BatchTransactionResponse batchProcess(String clientId, List<BatchTransactionItem> items){
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            BatchTransactionItem item = items.get(i);
+            Map<String, String> errors = validate(item);
+            if (!errors.isEmpty()) {
+                results[i] = result(i, item, BatchItemStatus.INVALID);
+                results[i].setErrors(errors);
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        // one lookup for all the keys and one for the transaction ids instead of a query per item,
+        // keys that are in the cache are known duplicates and don't go to the DB at all
+        Set<String> seenKeys = new HashSet<>();
+        Set<String> keys = new HashSet<>();
+        Set<String> transactionIds = new HashSet<>();
+        for (int i : validIndexes) {
+            String key = items.get(i).getIdempotencyKey();
+            if (idempotencyKeyCache.isProcessed(key)) {
+                seenKeys.add(key);
+            } else {
+                keys.add(key);
+            }
+            transactionIds.add(items.get(i).getTransaction().getId());
+        }
+        if (!keys.isEmpty()) {
+            for (IdempotencyKey existing : idempotencyKeyRepository.findExistingKeys(keys)) {
+                seenKeys.add(existing.getIdempotencyKey());
+                idempotencyKeyCache.markProcessed(existing.getIdempotencyKey(), existing.getTransactionId(), existing.getResponseStatus());
+            }
+        }
+        Set<String> seenTransactionIds = transactionIds.isEmpty() ? new HashSet<>() : new HashSet<>(transactionIdRepository.findExisting(transactionIds));
+
+        List<Integer> newIndexes = new ArrayList<>();
+        for (int i : validIndexes) {
+            BatchTransactionItem item = items.get(i);
+
+            // add() returns false if it was in the DB already or earlier in the same batch
+            if (!seenKeys.add(item.getIdempotencyKey()) || !seenTransactionIds.add(item.getTransaction().getId())) {
+                results[i] = result(i, item, BatchItemStatus.DUPLICATE);
+                continue;
+            }
+            newIndexes.add(i);
+        }
+
+        List<Transaction> newTransactions = new ArrayList<>();
+        for (int i : claim(items, newIndexes)) {
+            BatchTransactionItem item = items.get(i);
+            newTransactions.add(toTransaction(item.getTransaction(), clientId));
+            results[i] = result(i, item, BatchItemStatus.CREATED);
+            idempotencyKeyCache.markProcessedAfterCommit(item.getIdempotencyKey(), item.getTransaction().getId(), HttpStatus.OK.value());
+        }
+        for (int i : newIndexes) {
+            if (results[i] == null) {
+                results[i] = result(i, items.get(i), BatchItemStatus.DUPLICATE); // a concurrent batch got there first
+            }
+        }
+
+        // pooled ids + hibernate.jdbc.batch_size so these go out as JDBC batches on flush
+        transactionRepository.saveAll(newTransactions);
+        rollupRepository.increment(newTransactions);
+
+        int invalid = items.size() - validIndexes.size();
+        int created = newTransactions.size();
+        transactionMetrics.batchReplayed(validIndexes.size() - created);
+        log.info("Batch of {} transactions done for the user {}: {} created, {} duplicated, {} invalid",
+                items.size(), clientId, created, validIndexes.size() - created, invalid);
+
+        return BatchTransactionResponse.builder()
+                .created(created)
+                .duplicates(validIndexes.size() - created)
+                .invalid(invalid)
+                .results(List.of(results))
+                .build();
+    }
+
+    // Takes the keys and transaction ids of the items, returns the ones this batch got. A concurrent batch
+    // can take some between the lookups and here: all of them go in with INSERT IGNORE in one go, and only
+    // if rows are missing is that undone and they are claimed one at a time to learn which items lost
+    private List<Integer> claim(List<BatchTransactionItem> items, List<Integer> indexes){
+        if (indexes.isEmpty()) {
+            return indexes;
+        }
+        List<IdempotencyKey> keys = new ArrayList<>();
+        List<String> transactionIds = new ArrayList<>();
+        for (int i : indexes) {
+            BatchTransactionItem item = items.get(i);
+            keys.add(IdempotencyKey.builder()
+                    .idempotencyKey(item.getIdempotencyKey())
+                    .transactionId(item.getTransaction().getId())
+                    .responseStatus(HttpStatus.OK.value())
+                    .build());
+            transactionIds.add(item.getTransaction().getId());
+        }
+
+        // a JDBC savepoint on the transaction's connection, Hibernate's JPA dialect has none. Nothing is
+        // flushed before it, so rolling back to it only undoes the two inserts
+        Savepoint savepoint = jdbcTemplate.execute((ConnectionCallback<Savepoint>) Connection::setSavepoint);
+        int claimed = idempotencyKeyRepository.reserveAll(keys) + transactionIdRepository.claimNew(transactionIds);
+        if (claimed == keys.size() + transactionIds.size()) {
+            jdbcTemplate.execute((ConnectionCallback<Object>) connection -> {
+                connection.releaseSavepoint(savepoint);
+                return null;
+            });
+            return indexes;
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Object>) connection -> {
+            connection.rollback(savepoint);
+            return null;
+        });
+        List<Integer> won = new ArrayList<>();
+        for (int i : indexes) {
+            TransactionRequest request = items.get(i).getTransaction();
+            if (transactionIdRepository.claimNew(List.of(request.getId())) == 0) {
+                continue;
+            }
+            if (idempotencyKeyRepository.reserve(items.get(i).getIdempotencyKey(), request.getId(), HttpStatus.OK.value()) == 0) {
+                transactionIdRepository.release(request.getId());
+                continue;
+            }
+            won.add(i);
+        }
+        log.info("A concurrent batch took {} of {} keys or transaction ids, reported as duplicates", indexes.size() - won.size(), indexes.size());
+        return won;
+    }
+
+    private TransactionResult replayed(String transactionId, int status){
+        return TransactionResult.builder()
+                .transactionId(transactionId)
+                .status(status)
+                .replayed(true)
+                .build();
+    }
+
+    private Map<String, String> validate(BatchTransactionItem item){
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<BatchTransactionItem> violation : validator.validate(item)) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return errors;
+    }
+
+    private BatchItemResult result(int index, BatchTransactionItem item, BatchItemStatus status){
+        return BatchItemResult.builder()
+                .index(index)
+                .idempotencyKey(item.getIdempotencyKey())
+                .transactionId(item.getTransaction() == null ? null : item.getTransaction().getId())
+                .status(status)
+                .build();
+    }
+
+    private Transaction toTransaction(TransactionRequest request, String clientId){
+        return Transaction
                 .builder()
                 .transactionId(request.getId())
                 .type(request.getType())
@@ -47,19 +266,5 @@ public class TransactionService {
                 .clientId(clientId)
                 .currency(request.getCurrency())
                 .build();
-
-        transactionRepository.save(transaction);
-        // 3shan nestakhdem nafs el key and avoid the idmpotency key duplication
-        IdempotencyKey key = existingKey.orElse(
-                IdempotencyKey.builder()
-                        .transactionId(request.getId())
-                        .idempotencyKey(idempotencyKey)
-                        .build()
-        );
-
-        key.setProcessed(true);
-        idempotencyKeyRepository.save(key);
-
-        log.info("Transaction is successfully doneeeeee :D {} for the user {}", request.getId(), clientId);
     }
 }
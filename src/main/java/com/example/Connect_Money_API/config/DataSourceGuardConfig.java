@@ -0,0 +1,48 @@
+package com.example.Connect_Money_API.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+// wraps the Hikari DataSource in a GuardedDataSource, on by default and most useful with spring.threads.virtual.enabled
+@Configuration
+@ConditionalOnProperty(name = "database.access.guard.enabled", havingValue = "true", matchIfMissing = true)
+public class DataSourceGuardConfig {
+
+    @Bean
+    static BeanPostProcessor guardedDataSourcePostProcessor(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // the routing one guards its two pools itself
+                if (!(bean instanceof DataSource dataSource) || bean instanceof GuardedDataSource || bean instanceof ReplicaRoutingDataSource) {
+                    return bean;
+                }
+                return guard(dataSource, "primary",
+                        environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10),
+                        environment, meterRegistry.getObject());
+            }
+        };
+    }
+
+    static boolean enabled(Environment environment) {
+        return environment.getProperty("database.access.guard.enabled", Boolean.class, true);
+    }
+
+    static GuardedDataSource guard(DataSource dataSource, String pool, int poolSize, Environment environment, MeterRegistry meterRegistry) {
+        // one less than the pool by default, so nobody blocks inside Hikari and the id generator's
+        // nested connection is always free (see GuardedDataSource)
+        int permits = environment.getProperty("database.access.guard.permits", Integer.class, Math.max(1, poolSize - 1));
+        return new GuardedDataSource(dataSource, pool, permits,
+                environment.getRequiredProperty("database.access.guard.max-waiting", Integer.class),
+                environment.getRequiredProperty("database.access.guard.acquire-timeout", Long.class),
+                environment.getRequiredProperty("database.access.guard.retry-after", Long.class),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.Connect_Money_API.config;
+
+import com.example.Connect_Money_API.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lets at most `permits` threads hold a connection and at most `maxWaiting` wait for one.
+// With virtual threads there's no Tomcat pool in front of the DB anymore, so without this
+// every request blocked on Hikari would pile up until connection-timeout. Past maxWaiting
+// we answer 503 right away instead.
+//
+// A thread that already holds a connection from us gets a second one without a permit: Hibernate's TABLE
+// id generator opens its own connection in the middle of a transaction, and with every permit held by
+// threads doing the same, nobody would ever get past the generator. That's why permits default to one
+// less than the pool, so the nested connection is always there in Hikari.
+public class GuardedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final long acquireTimeoutMillis;
+    private final long retryAfterSeconds;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+    private final ThreadLocal<int[]> held = ThreadLocal.withInitial(() -> new int[1]);
+
+    public GuardedDataSource(DataSource target, int permits, int maxWaiting, long acquireTimeoutMillis,
+                             long retryAfterSeconds, MeterRegistry meterRegistry) {
+        this(target, "primary", permits, maxWaiting, acquireTimeoutMillis, retryAfterSeconds, meterRegistry);
+    }
+
+    // pool tags the meters, the replica pool has its own guard (see ReplicaRoutingConfig)
+    public GuardedDataSource(DataSource target, String pool, int permits, int maxWaiting, long acquireTimeoutMillis,
+                             long retryAfterSeconds, MeterRegistry meterRegistry) {
+        super(target);
+        this.permits = new Semaphore(permits, true); // fair, first come first served like Hikari's own queue
+        this.maxWaiting = maxWaiting;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        Gauge.builder("db.access.waiting", waiting, AtomicInteger::get).tag("pool", pool).register(meterRegistry);
+        Gauge.builder("db.access.available", this.permits, Semaphore::availablePermits).tag("pool", pool).register(meterRegistry);
+        this.rejected = Counter.builder("db.access.rejected").tag("pool", pool).register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int[] heldByThread = held.get();
+        boolean nested = heldByThread[0] > 0;
+        if (!nested) {
+            acquire();
+        }
+        return release(nested ? super.getConnection() : getOrRelease(super::getConnection), heldByThread, nested);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        int[] heldByThread = held.get();
+        boolean nested = heldByThread[0] > 0;
+        if (!nested) {
+            acquire();
+        }
+        return release(nested ? super.getConnection(username, password) : getOrRelease(() -> super.getConnection(username, password)),
+                heldByThread, nested);
+    }
+
+    // a pool that throws mustn't keep the permit
+    private Connection getOrRelease(ConnectionSupplier supplier) throws SQLException {
+        try {
+            return supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() {
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            throw new ServiceBusyException("Too many requests waiting for a DB connection", retryAfterSeconds);
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new ServiceBusyException("Timed out waiting for a DB connection", retryAfterSeconds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for a DB connection", retryAfterSeconds);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    // the permit goes back when the connection is closed (back to Hikari), only once.
+    // heldByThread is the counter of the thread that opened it, the close can come from another one
+    private Connection release(Connection connection, int[] heldByThread, boolean nested) throws SQLException {
+        if (connection == null) {
+            if (!nested) {
+                permits.release();
+            }
+            throw new SQLException("The pool returned no connection");
+        }
+        heldByThread[0]++;
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        } finally {
+                            heldByThread[0]--;
+                            if (!nested) {
+                                permits.release();
+                            }
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
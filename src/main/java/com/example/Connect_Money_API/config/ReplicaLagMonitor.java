@@ -0,0 +1,56 @@
+package com.example.Connect_Money_API.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+// Writes this node's clock to replication_heartbeat on the primary and reads its row back from the replica.
+// Whatever the replica has is how far it's behind (plus up to one interval), and any commit made before that
+// heartbeat was written is there too. The lag is only measured with this node's own clock, so the nodes'
+// clocks don't have to agree.
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final Duration FORGET_NODES_AFTER = Duration.ofDays(1);
+
+    private final ReplicaRoutingDataSource routing;
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final String node = UUID.randomUUID().toString();
+    private boolean cleaned;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routing) {
+        this.routing = routing;
+        this.primary = new JdbcTemplate(routing.primary());
+        this.replica = new JdbcTemplate(routing.replica());
+    }
+
+    @Scheduled(fixedDelayString = "${database.replica.heartbeat-interval}")
+    public synchronized void beat() {
+        long now = System.currentTimeMillis();
+        try {
+            if (!cleaned) {
+                primary.update("DELETE FROM replication_heartbeat WHERE beat_at < ?", now - FORGET_NODES_AFTER.toMillis());
+                cleaned = true;
+            }
+            if (primary.update("UPDATE replication_heartbeat SET beat_at = ? WHERE node = ?", now, node) == 0) {
+                primary.update("INSERT INTO replication_heartbeat (node, beat_at) VALUES (?, ?)", node, now);
+            }
+        } catch (RuntimeException e) {
+            // the replica's value just gets older, past max-lag the reads go to the primary
+            log.error("Could not write the replication heartbeat on the primary", e);
+        }
+
+        try {
+            List<Long> seen = replica.queryForList("SELECT beat_at FROM replication_heartbeat WHERE node = ?", Long.class, node);
+            routing.replicaBeat(seen.isEmpty() ? -1 : seen.get(0));
+        } catch (RuntimeException e) {
+            routing.replicaBeat(-1);
+            log.warn("Could not read the replication heartbeat on the replica, reading from the primary: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.Connect_Money_API.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+// Puts the application's DataSource behind a ReplicaRoutingDataSource with a second Hikari pool for the
+// read replica. Flyway, Hibernate's schema validation and everything outside a read only transaction
+// still get the primary. Both pools get their own DB guard, so reads on the replica don't take the
+// primary's permits.
+@Configuration
+@ConditionalOnProperty(name = "database.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    static BeanPostProcessor replicaRoutingPostProcessor(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource primary) || bean instanceof ReplicaRoutingDataSource || !beanName.equals("dataSource")) {
+                    return bean;
+                }
+                return route(primary, environment, meterRegistry.getObject());
+            }
+        };
+    }
+
+    @Bean
+    ReplicaLagMonitor replicaLagMonitor(DataSource dataSource) throws Exception {
+        return new ReplicaLagMonitor(dataSource.unwrap(ReplicaRoutingDataSource.class));
+    }
+
+    private static ReplicaRoutingDataSource route(DataSource primary, Environment environment, MeterRegistry meterRegistry) {
+        int poolSize = environment.getProperty("database.replica.maximum-pool-size", Integer.class, 10);
+
+        HikariDataSource replicaPool = new HikariDataSource();
+        replicaPool.setPoolName("replica");
+        replicaPool.setJdbcUrl(environment.getRequiredProperty("database.replica.url"));
+        replicaPool.setUsername(environment.getProperty("database.replica.username"));
+        replicaPool.setPassword(environment.getProperty("database.replica.password"));
+        replicaPool.setMaximumPoolSize(poolSize);
+        replicaPool.setReadOnly(true);
+        replicaPool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry)); // hikaricp_connections_*{pool="replica"}
+
+        DataSource replica = replicaPool;
+        if (DataSourceGuardConfig.enabled(environment)) {
+            // the guard's own post processor may have come first or not
+            if (!(primary instanceof GuardedDataSource)) {
+                primary = DataSourceGuardConfig.guard(primary, "primary",
+                        environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10),
+                        environment, meterRegistry);
+            }
+            replica = DataSourceGuardConfig.guard(replicaPool, "replica", poolSize, environment, meterRegistry);
+        }
+        return new ReplicaRoutingDataSource(primary, replica, replicaPool,
+                environment.getRequiredProperty("database.replica.max-lag", Long.class),
+                environment.getRequiredProperty("database.replica.max-clients", Integer.class),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.Connect_Money_API.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+// Connections of @Transactional(readOnly = true) work come from the replica, everything else from the primary.
+// The physical connection is only taken at the first statement (LazyConnectionDataSourceProxy), by then the
+// transaction is marked read only; without the lazy proxy JPA would take it before the flag is set.
+//
+// A read still goes to the primary when:
+// - the replica is more than maxLag behind, or ReplicaLagMonitor couldn't tell yet (replicaBeat < 0)
+// - the calling client committed a write the replica doesn't have yet, so it reads its own writes.
+//   Only writes made on this node are known here, on another node the client can be up to maxLag behind.
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Closeable replicaPool;
+    private final long maxLagMillis;
+    // last commit per client, a write older than maxLag is on a replica we'd still read from anyway
+    private final Cache<String, Long> lastWrites;
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+    private volatile long replicaBeat = -1;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Closeable replicaPool, long maxLagMillis,
+                                    int maxClients, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaPool = replicaPool;
+        this.maxLagMillis = maxLagMillis;
+        this.lastWrites = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterWrite(Duration.ofMillis(maxLagMillis))
+                .build();
+
+        Router router = new Router();
+        router.setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        router.setDefaultTargetDataSource(primary);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+        afterPropertiesSet();
+
+        Gauge.builder("db.replica.lag", this, ReplicaRoutingDataSource::lagSeconds)
+                .description("Seconds the replica is behind, as of the last heartbeat, NaN while it's unknown")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.replicaReads = Counter.builder("db.routing.reads").tag("target", REPLICA).register(meterRegistry);
+        this.primaryReads = Counter.builder("db.routing.reads").tag("target", PRIMARY).register(meterRegistry);
+    }
+
+    DataSource primary() {
+        return primary;
+    }
+
+    DataSource replica() {
+        return replica;
+    }
+
+    // the heartbeat the replica has, epoch millis, or -1 when it couldn't be read
+    void replicaBeat(long beatAt) {
+        this.replicaBeat = beatAt;
+    }
+
+    @Override
+    public void close() throws IOException {
+        replicaPool.close();
+    }
+
+    private boolean replicaUsable() {
+        long beat = replicaBeat;
+        if (beat < 0 || System.currentTimeMillis() - beat > maxLagMillis) {
+            return false;
+        }
+        String client = client();
+        Long lastWrite = client == null ? null : lastWrites.getIfPresent(client);
+        // a heartbeat written after the commit has made it, so has the commit
+        return lastWrite == null || beat >= lastWrite;
+    }
+
+    private void rememberWrite() {
+        String client = client();
+        if (client == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastWrites.put(client, System.currentTimeMillis());
+            }
+        });
+    }
+
+    private double lagSeconds() {
+        long beat = replicaBeat;
+        return beat < 0 ? Double.NaN : Math.max(0, System.currentTimeMillis() - beat) / 1000.0;
+    }
+
+    private static String client() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private class Router extends AbstractRoutingDataSource {
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    rememberWrite();
+                }
+                return PRIMARY;
+            }
+            if (replicaUsable()) {
+                replicaReads.increment();
+                return REPLICA;
+            }
+            primaryReads.increment();
+            return PRIMARY;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.Connect_Money_API.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// the @Scheduled jobs (purges, refreshes, journal drain, partition maintenance), off for one shot runs like --rebuild-rollups
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -1,8 +1,10 @@
 package com.example.Connect_Money_API.controller;
 
 import com.example.Connect_Money_API.Service.AuthService;
+import com.example.Connect_Money_API.dto.RevokeAllTokensRequest;
 import com.example.Connect_Money_API.dto.TokenRequest;
 import com.example.Connect_Money_API.dto.TokenResponse;
+import com.example.Connect_Money_API.dto.TokenRevocationRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,4 +28,18 @@ public class AuthController {
         TokenResponse tokenResponse = authService.authenticate(tokenRequest);
         return ResponseEntity.ok(tokenResponse);
     }
+
+    @PostMapping(value = "/revoke", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public ResponseEntity<Void> revoke(@Valid @ModelAttribute TokenRevocationRequest revocationRequest){
+        log.info("Token revocation request received form the client: {}", revocationRequest.getClientId());
+        authService.revoke(revocationRequest);
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping(value = "/revoke-all", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public ResponseEntity<Void> revokeAll(@Valid @ModelAttribute RevokeAllTokensRequest revokeAllRequest){
+        log.info("Revoke all tokens request received form the client: {}", revokeAllRequest.getClientId());
+        authService.revokeAll(revokeAllRequest);
+        return ResponseEntity.ok().build();
+    }
 }
@@ -1,12 +1,38 @@
 package com.example.Connect_Money_API.controller;
 
+import com.example.Connect_Money_API.Service.InFlightIdempotencyKeys;
+import com.example.Connect_Money_API.Service.TransactionExportService;
+import com.example.Connect_Money_API.Service.TransactionMetrics;
+import com.example.Connect_Money_API.Service.TransactionQueryService;
 import com.example.Connect_Money_API.Service.TransactionService;
+import com.example.Connect_Money_API.dto.BatchTransactionItem;
+import com.example.Connect_Money_API.dto.BatchTransactionResponse;
+import com.example.Connect_Money_API.dto.DailySummary;
+import com.example.Connect_Money_API.dto.ExportFormat;
+import com.example.Connect_Money_API.dto.IngestionStatusResponse;
+import com.example.Connect_Money_API.dto.TransactionFilter;
+import com.example.Connect_Money_API.dto.TransactionPageResponse;
 import com.example.Connect_Money_API.dto.TransactionRequest;
+import com.example.Connect_Money_API.dto.TransactionResult;
+import com.example.Connect_Money_API.journal.AsyncIngestionService;
+import com.example.Connect_Money_API.util.TransactionCursor;
+import io.micrometer.core.instrument.Timer;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @Slf4j
@@ -14,11 +40,57 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/v1/transactions")
 public class TransactionController {
     private final TransactionService transactionService;
+    private final TransactionQueryService transactionQueryService;
+    private final TransactionExportService transactionExportService;
+    private final TransactionMetrics transactionMetrics;
+    private final InFlightIdempotencyKeys inFlightIdempotencyKeys;
+    private final Optional<AsyncIngestionService> asyncIngestionService; // only there if async ingestion is enabled
+
+    @Value("${transactions.batch.max-size}")
+    private int maxBatchSize;
+
+    @Value("${transactions.query.max-page-size}")
+    private int maxPageSize;
+
+    // only the caller's own transactions, oldest first, pass nextCursor back to get the next page
+    @GetMapping
+    public ResponseEntity<TransactionPageResponse> getTransactions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String cardUid,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        if (limit < 1 || limit > maxPageSize) {
+            log.error("Page size must be between 1 and {}", maxPageSize);
+            return ResponseEntity.badRequest().build();
+        }
+        TransactionCursor after = null;
+        if (cursor != null) {
+            after = TransactionCursor.decode(cursor).orElse(null);
+            if (after == null) {
+                log.error("The cursor is not valid");
+                return ResponseEntity.badRequest().build();
+            }
+        }
 
+        String clientId = SecurityContextHolder.getContext().getAuthentication().getName();
+        TransactionFilter filter = TransactionFilter.builder()
+                .from(from)
+                .to(to)
+                .status(status)
+                .type(type)
+                .cardUid(cardUid)
+                .build();
+        return ResponseEntity.ok(transactionQueryService.findTransactions(clientId, filter, after, limit));
+    }
 
     @PostMapping
     public ResponseEntity<Void> createTransaction(
             @RequestHeader("idempotency-key") String idempotencyKey,
+            @RequestHeader(value = "Prefer", required = false) String prefer,
             @Valid @RequestBody TransactionRequest request) {
 
         log.info("Transaction id request received {} with idempotencykey id is: {}",
@@ -29,8 +101,103 @@ public class TransactionController {
             return ResponseEntity.badRequest().build();
         }
 
-        transactionService.transactionProcess(idempotencyKey, request);
-        return ResponseEntity.ok().build();
+        // RFC 7240, the client is fine with 202 and checking the status endpoint later
+        if (prefer != null && prefer.contains("respond-async") && asyncIngestionService.isPresent()) {
+            String clientId = SecurityContextHolder.getContext().getAuthentication().getName();
+            TransactionResult result = asyncIngestionService.get().accept(idempotencyKey, request, clientId);
+            return ResponseEntity.status(result.getStatus())
+                    .header("Idempotent-Replayed", String.valueOf(result.isReplayed()))
+                    .header("Preference-Applied", "respond-async")
+                    .header("Location", "/v1/transactions/ingestion/" + idempotencyKey)
+                    .build();
+        }
+
+        Timer.Sample sample = Timer.start();
+        // a retry of a request that's still running waits for it instead of racing it in the DB
+        TransactionResult result = inFlightIdempotencyKeys.process(idempotencyKey,
+                () -> transactionService.transactionProcess(idempotencyKey, request));
+        sample.stop(transactionMetrics.process(result.isReplayed()));
+        return ResponseEntity.status(result.getStatus())
+                .header("Idempotent-Replayed", String.valueOf(result.isReplayed()))
+                .build();
     }
-}
 
+    // items are validated one by one so a bad item doesn't reject the whole batch
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTransactionResponse> createTransactions(@RequestBody List<BatchTransactionItem> items) {
+        log.info("Batch transaction request received with {} items", items == null ? 0 : items.size());
+
+        if (items == null || items.isEmpty() || items.size() > maxBatchSize) {
+            log.error("Batch size must be between 1 and {}", maxBatchSize);
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(transactionService.batchProcess(items));
+    }
+
+    // per day totals from transaction_daily_rollup, never touches the transactions table
+    @GetMapping("/summary")
+    public ResponseEntity<List<DailySummary>> getSummary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String status) {
+
+        String clientId = SecurityContextHolder.getContext().getAuthentication().getName();
+        TransactionFilter filter = TransactionFilter.builder()
+                .from(from)
+                .to(to)
+                .currency(currency)
+                .type(type)
+                .status(status)
+                .build();
+        return ResponseEntity.ok(transactionQueryService.getSummary(clientId, filter));
+    }
+
+    // streamed while it's read from the DB, gzip if the client accepts it (curl --compressed)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        ExportFormat exportFormat = ExportFormat.fromParam(format).orElse(null);
+        if (exportFormat == null) {
+            log.error("Export format {} is not supported", format);
+            return ResponseEntity.badRequest().build();
+        }
+
+        // the body is written on another thread, so take the client from the context now
+        String clientId = SecurityContextHolder.getContext().getAuthentication().getName();
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+                    transactionExportService.export(clientId, from, to, exportFormat, compressed);
+                }
+            } else {
+                transactionExportService.export(clientId, from, to, exportFormat, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + exportFormat.getExtension() + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @GetMapping("/ingestion/{idempotencyKey}")
+    public ResponseEntity<IngestionStatusResponse> ingestionStatus(@PathVariable String idempotencyKey) {
+        String clientId = SecurityContextHolder.getContext().getAuthentication().getName();
+        return asyncIngestionService
+                .flatMap(service -> service.status(idempotencyKey, clientId))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+}
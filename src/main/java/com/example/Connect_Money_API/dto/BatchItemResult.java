@@ -0,0 +1,22 @@
+package com.example.Connect_Money_API.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    private int index;
+    private String idempotencyKey;
+    private String transactionId;
+    private BatchItemStatus status;
+    private Map<String, String> errors; // only filled for the invalid items
+}
@@ -0,0 +1,7 @@
+package com.example.Connect_Money_API.dto;
+
+public enum BatchItemStatus {
+    CREATED,
+    DUPLICATE,
+    INVALID
+}
@@ -0,0 +1,16 @@
+package com.example.Connect_Money_API.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class BatchTransactionItem {
+    @NotBlank(message = "Idempotency key is required")
+    private String idempotencyKey;
+
+    @Valid
+    @NotNull(message = "Transaction is required")
+    private TransactionRequest transaction;
+}
@@ -0,0 +1,19 @@
+package com.example.Connect_Money_API.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransactionResponse {
+    private int created;
+    private int duplicates;
+    private int invalid;
+    private List<BatchItemResult> results;
+}
@@ -0,0 +1,24 @@
+package com.example.Connect_Money_API.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySummary {
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate date;
+    private String currency;
+    private String type;
+    private String status;
+    private long count;
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,21 @@
+package com.example.Connect_Money_API.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    public static Optional<ExportFormat> fromParam(String value){
+        return Arrays.stream(values()).filter(format -> format.name().equalsIgnoreCase(value)).findFirst();
+    }
+}
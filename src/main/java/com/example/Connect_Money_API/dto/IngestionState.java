@@ -0,0 +1,7 @@
+package com.example.Connect_Money_API.dto;
+
+public enum IngestionState {
+    PENDING,   // in the journal, not in the DB yet
+    PERSISTED, // committed in the DB
+    REJECTED   // drained but the transaction id was already used with another key
+}
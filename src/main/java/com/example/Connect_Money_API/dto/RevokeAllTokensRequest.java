@@ -0,0 +1,20 @@
+package com.example.Connect_Money_API.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+// form body of /revoke-all, every token of the client issued before `before` (now if not given) stops working
+@Data
+public class RevokeAllTokensRequest {
+    @NotBlank(message = "client_id is required")
+    private String clientId;
+
+    @NotBlank(message = "client_secret is required")
+    private String clientSecret;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime before;
+}
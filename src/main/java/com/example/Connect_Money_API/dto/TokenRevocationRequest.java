@@ -0,0 +1,17 @@
+package com.example.Connect_Money_API.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+// form body of /revoke, like RFC 7009: the client's credentials and the token to revoke
+@Data
+public class TokenRevocationRequest {
+    @NotBlank(message = "client_id is required")
+    private String clientId;
+
+    @NotBlank(message = "client_secret is required")
+    private String clientSecret;
+
+    @NotBlank(message = "token is required")
+    private String token;
+}
@@ -0,0 +1,36 @@
+package com.example.Connect_Money_API.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// every field is optional, null means no filter on it
+@Data
+@Builder
+public class TransactionFilter {
+    private LocalDate from; // inclusive
+    private LocalDate to;   // inclusive
+    private String status;
+    private String currency;
+    private String type;
+    private String cardUid;
+
+    // same case handling as TransactionRequest, the rest of the builder is lombok's
+    public static class TransactionFilterBuilder {
+        public TransactionFilterBuilder status(String status){
+            this.status = TransactionRequest.upperCase(status);
+            return this;
+        }
+
+        public TransactionFilterBuilder currency(String currency){
+            this.currency = TransactionRequest.upperCase(currency);
+            return this;
+        }
+
+        public TransactionFilterBuilder type(String type){
+            this.type = TransactionRequest.upperCase(type);
+            return this;
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.Connect_Money_API.dto;
 
+import com.example.Connect_Money_API.model.TransactionStatus;
+import com.example.Connect_Money_API.model.TransactionType;
+import com.example.Connect_Money_API.util.MinorUnits;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Locale;
 
 @Data
 public class TransactionRequest {
@@ -13,9 +18,11 @@ public class TransactionRequest {
     private String id;
 
     @NotBlank(message = "Type is required")
+    @Pattern(regexp = TransactionType.NAMES, message = "Type must be one of " + TransactionType.NAMES)
     private String type;
 
     @NotBlank(message = "Status is required")
+    @Pattern(regexp = TransactionStatus.NAMES, message = "Status must be one of " + TransactionStatus.NAMES)
     private String status;
 
     @NotNull(message = "Amount is required")
@@ -23,6 +30,7 @@ public class TransactionRequest {
     private BigDecimal amount;
 
     @NotBlank(message = "Currency is required")
+    @Pattern(regexp = "[A-Z]{3}", message = "Currency must be an ISO 4217 code")
     private String currency;
 
     @NotBlank(message = "Card UID is required")
@@ -31,4 +39,28 @@ public class TransactionRequest {
     @NotNull(message = "Created date is required")
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate createdAt;
+
+    // the codes used to be taken in any case, they're compared upper case since they're stored as codes
+    public void setType(String type){
+        this.type = upperCase(type);
+    }
+
+    public void setStatus(String status){
+        this.status = upperCase(status);
+    }
+
+    public void setCurrency(String currency){
+        this.currency = upperCase(currency);
+    }
+
+    // stored in the currency's minor unit, 10.505 USD or 10.5 JPY can't be
+    @JsonIgnore
+    @AssertTrue(message = "Amount has more decimals than the currency allows")
+    public boolean isAmountInMinorUnits(){
+        return amount == null || currency == null || MinorUnits.fits(amount, currency);
+    }
+
+    static String upperCase(String value){
+        return value == null ? null : value.toUpperCase(Locale.ROOT);
+    }
 }
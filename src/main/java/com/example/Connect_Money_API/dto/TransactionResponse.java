@@ -0,0 +1,27 @@
+package com.example.Connect_Money_API.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// same field names as TransactionRequest so what you read back looks like what you sent
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionResponse {
+    private String id;
+    private String type;
+    private String status;
+    private BigDecimal amount;
+    private String currency;
+    private String cardUid;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate createdAt;
+}
@@ -0,0 +1,16 @@
+package com.example.Connect_Money_API.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionResult {
+    private String transactionId;
+    private int status;
+    private boolean replayed; // true if the idempotency key was used before
+}
@@ -1,10 +1,15 @@
 package com.example.Connect_Money_API.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Data;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -18,7 +23,10 @@ import java.util.Objects;
 
 @RestControllerAdvice
 @Slf4j
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
+    private final MeterRegistry meterRegistry;
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException exception){
         Map<String, String> errors = new HashMap<>();
@@ -34,6 +42,7 @@ public class GlobalExceptionHandler {
         result.put("errors", errors);
 
         log.error("The validation errors in the fields: {}", errors);
+        count(exception, HttpStatus.BAD_REQUEST);
         return ResponseEntity.badRequest().body(result);
     }
 
@@ -52,6 +61,7 @@ public class GlobalExceptionHandler {
         response.put("error", "Authentication failed please try again!"); //HEre I put it with static string to improve security and not tell the attempter to know the reason
 
         log.error("Security exception is: {}", exception.getMessage());
+        count(exception, HttpStatus.UNAUTHORIZED);
 
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
     }
@@ -66,9 +76,50 @@ public class GlobalExceptionHandler {
         response.put("error", "Access denied");
 
         log.error("Access denied becasue of: {}", exception.getMessage());
+        count(exception, HttpStatus.FORBIDDEN);
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
     }
 
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, Object>> handleDataIntegrityViolationException(
+            DataIntegrityViolationException exception) {
+
+        //unique constraints, e.g the same transaction id sent again with another idempotency key
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.CONFLICT.value());
+        response.put("error", "The request conflicts with existing data");
+
+        log.error("Data integrity violation: {}", exception.getMostSpecificCause().getMessage());
+        count(exception, HttpStatus.CONFLICT);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleServiceBusyException(ServiceBusyException exception) {
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.put("error", "Service is busy, please retry later");
+
+        log.warn("Request rejected: {}", exception.getMessage());
+        count(exception, HttpStatus.SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    // the DB guard rejects while the transaction is opened, so it reaches us wrapped
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<Map<String, Object>> handleCannotCreateTransactionException(
+            CannotCreateTransactionException exception) {
+        if (exception.getMostSpecificCause() instanceof ServiceBusyException busy) {
+            return handleServiceBusyException(busy);
+        }
+        return handleGenericException(exception);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(
             Exception exception) {
@@ -80,7 +131,15 @@ public class GlobalExceptionHandler {
         response.put("error", "An error occurred !!");
 
         log.error("Unexpected error due to: {}", exception.getMessage());
+        count(exception, HttpStatus.INTERNAL_SERVER_ERROR);
 
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
+
+    // tagged by class name only, never by the message which can carry ids
+    private void count(Exception exception, HttpStatus status){
+        meterRegistry.counter("api.exceptions",
+                "exception", exception.getClass().getSimpleName(),
+                "status", String.valueOf(status.value())).increment();
+    }
 }
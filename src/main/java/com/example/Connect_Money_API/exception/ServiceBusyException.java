@@ -0,0 +1,14 @@
+package com.example.Connect_Money_API.exception;
+
+import lombok.Getter;
+
+// thrown when we shed load on purpose, the client should come back after retryAfterSeconds
+@Getter
+public class ServiceBusyException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.Connect_Money_API.journal;
+
+import com.example.Connect_Money_API.Service.IdempotencyKeyCache;
+import com.example.Connect_Money_API.Service.TransactionMetrics;
+import com.example.Connect_Money_API.Service.TransactionService;
+import com.example.Connect_Money_API.dto.BatchItemResult;
+import com.example.Connect_Money_API.dto.BatchItemStatus;
+import com.example.Connect_Money_API.dto.BatchTransactionItem;
+import com.example.Connect_Money_API.dto.IngestionState;
+import com.example.Connect_Money_API.dto.IngestionStatusResponse;
+import com.example.Connect_Money_API.dto.TransactionRequest;
+import com.example.Connect_Money_API.dto.TransactionResult;
+import com.example.Connect_Money_API.exception.ServiceBusyException;
+import com.example.Connect_Money_API.model.IdempotencyKey;
+import com.example.Connect_Money_API.repository.IdempotencyKeyRepository;
+import com.example.Connect_Money_API.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write behind ingestion: a request is answered with 202 once it's fsync'd in the local journal,
+// the drainer moves it to MySQL later in big batches through the normal batch path.
+// Only turned on with transactions.async-ingestion.enabled, clients opt in per request with "Prefer: respond-async".
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "transactions.async-ingestion.enabled", havingValue = "true")
+public class AsyncIngestionService {
+
+    private final TransactionService transactionService;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionRepository transactionRepository;
+    private final IdempotencyKeyCache idempotencyKeyCache;
+    private final TransactionMetrics transactionMetrics;
+    private final TransactionJournal journal;
+    private final int drainBatchSize;
+    private final int maxPending;
+    private final long retryAfterSeconds;
+
+    // journal order, the checkpoint can only move past entries that are all in the DB
+    private final Queue<JournaledEntry> queue = new ConcurrentLinkedQueue<>();
+    private final Map<String, JournaledEntry> pending = new ConcurrentHashMap<>(); // by idempotency key
+    private final Cache<String, String> rejected; // idempotency key -> client id
+    // append + enqueue together, otherwise the queue could get out of journal order
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    public AsyncIngestionService(TransactionService transactionService,
+                                 IdempotencyKeyRepository idempotencyKeyRepository,
+                                 TransactionRepository transactionRepository,
+                                 IdempotencyKeyCache idempotencyKeyCache,
+                                 TransactionMetrics transactionMetrics,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${transactions.async-ingestion.journal-dir}") String journalDir,
+                                 @Value("${transactions.async-ingestion.segment-size}") int segmentSize,
+                                 @Value("${transactions.async-ingestion.drain-batch-size}") int drainBatchSize,
+                                 @Value("${transactions.async-ingestion.max-pending}") int maxPending,
+                                 @Value("${transactions.async-ingestion.retry-after}") long retryAfterSeconds,
+                                 @Value("${transactions.async-ingestion.rejected-max-entries}") long rejectedMaxEntries,
+                                 @Value("${transactions.async-ingestion.rejected-ttl}") long rejectedTtlSeconds) throws IOException {
+        this.transactionService = transactionService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionRepository = transactionRepository;
+        this.idempotencyKeyCache = idempotencyKeyCache;
+        this.transactionMetrics = transactionMetrics;
+        this.journal = new TransactionJournal(Path.of(journalDir), segmentSize, objectMapper);
+        this.drainBatchSize = drainBatchSize;
+        this.maxPending = maxPending;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.rejected = Caffeine.newBuilder()
+                .maximumSize(rejectedMaxEntries)
+                .expireAfterWrite(Duration.ofSeconds(rejectedTtlSeconds))
+                .build();
+
+        Gauge.builder("transactions.journal.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    // whatever was accepted before a crash and not drained yet
+    @PostConstruct
+    void replay() throws IOException {
+        for (JournaledEntry journaled : journal.replay()) {
+            queue.add(journaled);
+            pending.put(journaled.entry().idempotencyKey(), journaled);
+        }
+    }
+
+    // status 202 once the request is in the journal, or the replayed status if the key was used before
+    public TransactionResult accept(String idempotencyKey, TransactionRequest request, String clientId){
+        IdempotencyKeyCache.ProcessedKey cached = idempotencyKeyCache.get(idempotencyKey);
+        if (cached != null) {
+            transactionMetrics.asyncReplayed();
+            return result(cached.transactionId(), cached.responseStatus(), true);
+        }
+        // the cache only has what this node saw lately, a key used on another node or before a restart is
+        // only in the DB. Read outside the lock so the appends don't wait on it
+        Optional<IdempotencyKey> persisted = idempotencyKeyRepository.findById(idempotencyKey);
+        if (persisted.isPresent()) {
+            idempotencyKeyCache.markProcessed(idempotencyKey, persisted.get().getTransactionId(), persisted.get().getResponseStatus());
+            transactionMetrics.asyncReplayed();
+            return result(persisted.get().getTransactionId(), persisted.get().getResponseStatus(), true);
+        }
+
+        appendLock.lock();
+        try {
+            JournaledEntry existing = pending.get(idempotencyKey);
+            if (existing != null) {
+                transactionMetrics.asyncReplayed();
+                return result(existing.entry().request().getId(), HttpStatus.ACCEPTED.value(), true);
+            }
+            // a drain may have persisted the key and taken it out of pending since the read above. It marks
+            // the cache on commit, before the key leaves pending, so the key is in one of the two
+            cached = idempotencyKeyCache.get(idempotencyKey);
+            if (cached != null) {
+                transactionMetrics.asyncReplayed();
+                return result(cached.transactionId(), cached.responseStatus(), true);
+            }
+            if (pending.size() >= maxPending) {
+                // the DB is behind by too much, don't let the journal grow without a limit
+                throw new ServiceBusyException("Too many transactions waiting for the DB", retryAfterSeconds);
+            }
+
+            JournalEntry entry = new JournalEntry(idempotencyKey, clientId, request);
+            JournaledEntry journaled = new JournaledEntry(entry, journal.append(entry));
+            queue.add(journaled);
+            pending.put(idempotencyKey, journaled);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't write the transaction to the journal", e);
+        } finally {
+            appendLock.unlock();
+        }
+        return result(request.getId(), HttpStatus.ACCEPTED.value(), false);
+    }
+
+    public Optional<IngestionStatusResponse> status(String idempotencyKey, String clientId){
+        JournaledEntry journaled = pending.get(idempotencyKey);
+        if (journaled != null) {
+            return journaled.entry().clientId().equals(clientId)
+                    ? Optional.of(status(idempotencyKey, journaled.entry().request().getId(), IngestionState.PENDING))
+                    : Optional.empty();
+        }
+
+        // a key in the DB always wins, a drain that's retried after a crash reports it as a duplicate
+        Optional<IngestionStatusResponse> persisted = idempotencyKeyRepository.findById(idempotencyKey)
+                .flatMap(key -> transactionRepository.findTransactionByTransactionId(key.getTransactionId()))
+                .filter(transaction -> transaction.getClientId().equals(clientId))
+                .map(transaction -> status(idempotencyKey, transaction.getTransactionId(), IngestionState.PERSISTED));
+        if (persisted.isPresent()) {
+            return persisted;
+        }
+
+        return clientId.equals(rejected.getIfPresent(idempotencyKey))
+                ? Optional.of(status(idempotencyKey, null, IngestionState.REJECTED))
+                : Optional.empty();
+    }
+
+    @Scheduled(fixedDelayString = "${transactions.async-ingestion.drain-interval}")
+    public synchronized void drain(){
+        try {
+            while (!queue.isEmpty()) {
+                drainBatch();
+            }
+        } catch (RuntimeException | IOException e) {
+            // nothing is removed from the queue, the next run tries the same entries again
+            log.error("Draining the journal failed, {} transactions are waiting", pending.size(), e);
+        }
+    }
+
+    private void drainBatch() throws IOException {
+        List<JournaledEntry> batch = new ArrayList<>(drainBatchSize);
+        Iterator<JournaledEntry> iterator = queue.iterator();
+        while (iterator.hasNext() && batch.size() < drainBatchSize) {
+            batch.add(iterator.next());
+        }
+
+        // the batch path keeps one client per call, the order in the journal doesn't matter inside a batch
+        Map<String, List<BatchTransactionItem>> byClient = new LinkedHashMap<>();
+        for (JournaledEntry journaled : batch) {
+            BatchTransactionItem item = new BatchTransactionItem();
+            item.setIdempotencyKey(journaled.entry().idempotencyKey());
+            item.setTransaction(journaled.entry().request());
+            byClient.computeIfAbsent(journaled.entry().clientId(), clientId -> new ArrayList<>()).add(item);
+        }
+        int failed = 0;
+        for (Map.Entry<String, List<BatchTransactionItem>> client : byClient.entrySet()) {
+            try {
+                reject(client.getKey(), transactionService.batchProcess(client.getKey(), client.getValue()).getResults());
+            } catch (DataIntegrityViolationException e) {
+                // one entry the DB won't take fails the whole batch, find it so the rest still goes in
+                log.warn("A batch of {} transactions failed, retrying them one by one", client.getValue().size(), e);
+                failed += drainOneByOne(client.getKey(), client.getValue());
+            }
+        }
+
+        journal.checkpoint(batch.get(batch.size() - 1).position());
+        for (JournaledEntry journaled : batch) {
+            queue.poll();
+            pending.remove(journaled.entry().idempotencyKey());
+        }
+        log.info("Drained {} transactions from the journal into the DB, {} failed", batch.size(), failed);
+    }
+
+    // a constraint the entry breaks (a card uid too long for the column, a client removed after the entry
+    // was accepted...) fails it again on every retry, so it's rejected and the checkpoint moves past it.
+    // Anything else (the DB is down, a lock timeout) is thrown and the whole batch is retried on the next run,
+    // the entries that went in before that are duplicates then and the status reads them from the DB.
+    private int drainOneByOne(String clientId, List<BatchTransactionItem> items){
+        int failed = 0;
+        for (BatchTransactionItem item : items) {
+            try {
+                reject(clientId, transactionService.batchProcess(clientId, List.of(item)).getResults());
+            } catch (DataIntegrityViolationException e) {
+                log.error("Rejecting transaction {} from the journal, the DB doesn't take it", item.getTransaction().getId(), e);
+                rejected.put(item.getIdempotencyKey(), clientId);
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private void reject(String clientId, List<BatchItemResult> results){
+        for (BatchItemResult result : results) {
+            if (result.getStatus() != BatchItemStatus.CREATED) {
+                rejected.put(result.getIdempotencyKey(), clientId);
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        drain();
+        journal.close();
+    }
+
+    private TransactionResult result(String transactionId, int status, boolean replayed){
+        return TransactionResult.builder()
+                .transactionId(transactionId)
+                .status(status)
+                .replayed(replayed)
+                .build();
+    }
+
+    private IngestionStatusResponse status(String idempotencyKey, String transactionId, IngestionState state){
+        return IngestionStatusResponse.builder()
+                .idempotencyKey(idempotencyKey)
+                .transactionId(transactionId)
+                .state(state)
+                .build();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.Connect_Money_API.journal;
+
+import com.example.Connect_Money_API.dto.TransactionRequest;
+
+// one accepted transaction as it's written to the journal
+public record JournalEntry(String idempotencyKey, String clientId, TransactionRequest request) {
+}
@@ -0,0 +1,13 @@
+package com.example.Connect_Money_API.journal;
+
+// end of a record: segment number + byte offset right after it
+public record JournalPosition(long segment, int offset) implements Comparable<JournalPosition> {
+
+    public static final JournalPosition START = new JournalPosition(0, 0);
+
+    @Override
+    public int compareTo(JournalPosition other) {
+        int bySegment = Long.compare(segment, other.segment);
+        return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.Connect_Money_API.journal;
+
+public record JournaledEntry(JournalEntry entry, JournalPosition position) {
+}
@@ -0,0 +1,184 @@
+package com.example.Connect_Money_API.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append only journal of accepted transactions on memory mapped segment files.
+// Every record is [int length][int crc32][json] and is forced to disk before append() returns.
+// A zero length (never written) or a bad crc (torn write during a crash) marks the end of a segment.
+// The checkpoint file holds the position up to which everything is in MySQL.
+@Slf4j
+public class TransactionJournal implements Closeable {
+
+    private static final int HEADER = 8;
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ObjectMapper objectMapper;
+
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    public TransactionJournal(Path directory, int segmentSize, ObjectMapper objectMapper) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.objectMapper = objectMapper;
+    }
+
+    // everything after the checkpoint, also leaves the writer at the end of the last segment
+    public synchronized List<JournaledEntry> replay() throws IOException {
+        JournalPosition checkpoint = readCheckpoint();
+        List<JournaledEntry> entries = new ArrayList<>();
+
+        List<Long> segments = segments();
+        for (long seq : segments) {
+            if (seq < checkpoint.segment()) {
+                continue;
+            }
+            MappedByteBuffer mapped = map(seq);
+            int position = 0;
+            while (true) {
+                byte[] payload = readRecord(mapped, position);
+                if (payload == null) {
+                    break;
+                }
+                position += HEADER + payload.length;
+                if (seq > checkpoint.segment() || position > checkpoint.offset()) {
+                    entries.add(new JournaledEntry(objectMapper.readValue(payload, JournalEntry.class), new JournalPosition(seq, position)));
+                }
+            }
+            if (seq == segments.get(segments.size() - 1)) {
+                openForAppend(seq, mapped, position);
+            }
+        }
+
+        if (buffer == null) {
+            openForAppend(Math.max(checkpoint.segment(), 0), map(Math.max(checkpoint.segment(), 0)), 0);
+        }
+        log.info("Journal replay found {} transactions that aren't in the DB yet", entries.size());
+        return entries;
+    }
+
+    public synchronized JournalPosition append(JournalEntry entry) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(entry);
+        if (HEADER + payload.length > segmentSize) {
+            throw new IllegalArgumentException("Journal entry is bigger than a segment");
+        }
+        if (buffer.remaining() < HEADER + payload.length) {
+            roll();
+        }
+
+        int start = buffer.position();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        buffer.force(start, HEADER + payload.length); // durable before we answer 202
+        return new JournalPosition(segment, buffer.position());
+    }
+
+    // everything up to here is in the DB, older segments aren't needed anymore
+    public synchronized void checkpoint(JournalPosition position) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT + ".tmp");
+        Files.writeString(temp, position.segment() + " " + position.offset(), StandardCharsets.UTF_8);
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            file.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long seq : segments()) {
+            if (seq < position.segment()) {
+                Files.deleteIfExists(segmentPath(seq));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private void roll() throws IOException {
+        buffer.force();
+        channel.close();
+        openForAppend(segment + 1, map(segment + 1), 0);
+    }
+
+    private void openForAppend(long seq, MappedByteBuffer mapped, int position) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        this.segment = seq;
+        this.channel = FileChannel.open(segmentPath(seq), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = mapped;
+        this.buffer.position(position);
+    }
+
+    private MappedByteBuffer map(long seq) throws IOException {
+        try (FileChannel file = FileChannel.open(segmentPath(seq), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return file.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize); // the mapping stays valid after close
+        }
+    }
+
+    private byte[] readRecord(MappedByteBuffer mapped, int position){
+        if (position + HEADER > segmentSize) {
+            return null;
+        }
+        int length = mapped.getInt(position);
+        if (length <= 0 || position + HEADER + length > segmentSize) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        mapped.get(position + HEADER, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != mapped.getInt(position + 4)) {
+            log.warn("Journal record at {} has a bad checksum, treating it as the end of the journal", position);
+            return null;
+        }
+        return payload;
+    }
+
+    private JournalPosition readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT);
+        if (!Files.exists(file)) {
+            return JournalPosition.START;
+        }
+        String[] parts = Files.readString(file, StandardCharsets.UTF_8).trim().split(" ");
+        return new JournalPosition(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("segment-") && name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long seq){
+        return directory.resolve(String.format("segment-%016d.log", seq));
+    }
+}
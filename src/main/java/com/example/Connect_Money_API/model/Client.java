@@ -19,7 +19,9 @@ import java.time.LocalDateTime;
 @Builder
 public class Client {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "client_id")
+    @TableGenerator(name = "client_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "client", allocationSize = 50)
     private Long id;
     @Column(unique = true)
     private String clientId;
@@ -31,4 +33,6 @@ public class Client {
     @Column(nullable = false)
     private Integer failedAttempts = 0;
     private LocalDateTime lockedUntil;
+    // tokens issued up to this time are revoked, see TokenRevocations
+    private LocalDateTime tokensRevokedBefore;
 }
@@ -0,0 +1,47 @@
+package com.example.Connect_Money_API.model;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// transactions.client_id is client.id, Transaction.clientId (and the API, the JWT, the rollups) stay the client's name.
+// Hibernate gets this from Spring, so both ways are looked up once and cached, an id never changes.
+// An unknown name is null and isn't cached: matches nothing in a query, fails the NOT NULL on an insert.
+@Component
+@Converter
+public class ClientIdConverter implements AttributeConverter<String, Long> {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<String, Long> ids;
+    private final Cache<Long, String> names;
+
+    public ClientIdConverter(JdbcTemplate jdbcTemplate,
+                             @Value("${transactions.client-id-cache.max-size}") long maxSize){
+        this.jdbcTemplate = jdbcTemplate;
+        this.ids = Caffeine.newBuilder().maximumSize(maxSize).build();
+        this.names = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    @Override
+    public Long convertToDatabaseColumn(String clientId){
+        return clientId == null ? null : ids.get(clientId, name -> find("SELECT id FROM client WHERE client_id = ?", Long.class, name));
+    }
+
+    @Override
+    public String convertToEntityAttribute(Long id){
+        return id == null ? null : names.get(id, key -> find("SELECT client_id FROM client WHERE id = ?", String.class, key));
+    }
+
+    private <T> T find(String sql, Class<T> type, Object key){
+        try {
+            return jdbcTemplate.queryForObject(sql, type, key);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+}
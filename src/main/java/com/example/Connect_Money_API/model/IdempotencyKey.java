@@ -6,23 +6,20 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "idempotency_keys", indexes = {
-        @Index(name = "idx_idempotency_key", columnList = "idempotencyKey", unique = true)
-})
+@Table(name = "idempotency_keys")
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class IdempotencyKey {
+public class IdempotencyKey implements Persistable<String> {
+    // the key itself is the primary key so it can be claimed with one INSERT IGNORE
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false, updatable = false)
     private String idempotencyKey;
 
     @Column(nullable = false)
@@ -31,7 +28,22 @@ public class IdempotencyKey {
     @Column(nullable = false)
     private Boolean processed = false;  // to make it by default false even it to be updated
 
+    // what the first request answered, replays get the same
+    @Column(nullable = false)
+    private Integer responseStatus;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    // assigned id, so tell spring data when it's new to get a persist instead of select + merge
+    @Override
+    public boolean isNew() {
+        return createdAt == null;
+    }
 }
@@ -1,11 +1,14 @@
 package com.example.Connect_Money_API.model;
 
+import com.example.Connect_Money_API.util.MinorUnits;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -13,7 +16,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "transactions", indexes = {
-        @Index(name = "idx_transaction_id", columnList = "transactionId")
+        @Index(name = "idx_transaction_id", columnList = "transactionId"),
+        @Index(name = "idx_client_date_id", columnList = "clientId, transactionDate, id")
 })
 @Data
 @Builder
@@ -21,22 +25,32 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transactions_id")
+    @TableGenerator(name = "transactions_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "transactions", allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    // unique through transaction_ids, the partitioned table on MySQL can only keep it unique per date
+    @Column(nullable = false)
     private String transactionId;
 
     @Column(nullable = false)
+    @Convert(converter = TransactionTypeConverter.class)
     private String type;
 
     @Column(nullable = false)
+    @Convert(converter = TransactionStatusConverter.class)
     private String status;
 
-    @Column(nullable = false)
+    // the column is amountMinor, this is filled from it on load and written to it on persist
+    @Transient
     private BigDecimal amount;
 
-    @Column(nullable = false)
+    @Column(name = "amount", nullable = false)
+    private Long amountMinor;
+
+    @Column(nullable = false, length = 3)
+    @JdbcTypeCode(SqlTypes.CHAR)
     private String currency;
 
     @Column(nullable = false)
@@ -46,9 +60,20 @@ public class Transaction {
     private LocalDate transactionDate;
 
     @Column(nullable = false)
+    @Convert(converter = ClientIdConverter.class)
     private String clientId;
 
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
+
+    @PrePersist
+    void toMinorUnits(){
+        amountMinor = MinorUnits.toMinor(amount, currency);
+    }
+
+    @PostLoad
+    void fromMinorUnits(){
+        amount = MinorUnits.fromMinor(amountMinor, currency);
+    }
 }
@@ -0,0 +1,44 @@
+package com.example.Connect_Money_API.model;
+
+import java.util.Arrays;
+
+// transactions.status is the code (TINYINT), never the ordinal, so a new value goes at the end with the next free code
+public enum TransactionStatus {
+    PENDING(1),
+    COMPLETED(2),
+    FAILED(3),
+    CANCELLED(4),
+    REVERSED(5);
+
+    // for @Pattern on the request, keep it in line with the values above
+    public static final String NAMES = "PENDING|COMPLETED|FAILED|CANCELLED|REVERSED";
+
+    private static final TransactionStatus[] BY_CODE = new TransactionStatus[REVERSED.code + 1];
+
+    static {
+        for (TransactionStatus status : values()) {
+            BY_CODE[status.code] = status;
+        }
+    }
+
+    private final byte code;
+
+    TransactionStatus(int code){
+        this.code = (byte) code;
+    }
+
+    public byte code(){
+        return code;
+    }
+
+    public static TransactionStatus fromCode(byte code){
+        if (code < 1 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown transaction status code " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    public static boolean isKnown(String name){
+        return Arrays.stream(values()).anyMatch(status -> status.name().equals(name));
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.Connect_Money_API.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Locale;
+
+// Transaction.status stays the name, the column is the code
+@Converter
+public class TransactionStatusConverter implements AttributeConverter<String, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(String name){
+        return name == null ? null : TransactionStatus.valueOf(name.toUpperCase(Locale.ROOT)).code();
+    }
+
+    @Override
+    public String convertToEntityAttribute(Byte code){
+        return code == null ? null : TransactionStatus.fromCode(code).name();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.Connect_Money_API.model;
+
+import java.util.Arrays;
+
+// transactions.type is the code (TINYINT), never the ordinal, so a new value goes at the end with the next free code
+public enum TransactionType {
+    PURCHASE(1),
+    PAYMENT(2),
+    TRANSFER(3),
+    WITHDRAWAL(4),
+    DEPOSIT(5),
+    REFUND(6);
+
+    // for @Pattern on the request, keep it in line with the values above
+    public static final String NAMES = "PURCHASE|PAYMENT|TRANSFER|WITHDRAWAL|DEPOSIT|REFUND";
+
+    private static final TransactionType[] BY_CODE = new TransactionType[REFUND.code + 1];
+
+    static {
+        for (TransactionType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    TransactionType(int code){
+        this.code = (byte) code;
+    }
+
+    public byte code(){
+        return code;
+    }
+
+    public static TransactionType fromCode(byte code){
+        if (code < 1 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown transaction type code " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    public static boolean isKnown(String name){
+        return Arrays.stream(values()).anyMatch(type -> type.name().equals(name));
+    }
+}
@@ -2,11 +2,25 @@ package com.example.Connect_Money_API.repository;
 
 import com.example.Connect_Money_API.model.Client;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Long> {
+    // token requests look clients up here, from the replica when there is one
+    @Transactional(readOnly = true)
     Optional<Client> findClientByClientId(String clientId);
+
+    // only ever moves forward
+    @Modifying
+    @Transactional
+    @Query("UPDATE Client c SET c.tokensRevokedBefore = :before WHERE c.clientId = :clientId "
+            + "AND (c.tokensRevokedBefore IS NULL OR c.tokensRevokedBefore < :before)")
+    int revokeTokensIssuedBefore(@Param("clientId") String clientId, @Param("before") LocalDateTime before);
 }
@@ -0,0 +1,11 @@
+package com.example.Connect_Money_API.repository;
+
+import com.example.Connect_Money_API.model.IdempotencyKey;
+
+import java.util.List;
+
+// the batch path's reserve: one INSERT IGNORE with a VALUES list of any length, which a @Query can't take
+public interface IdempotencyKeyBatchInsert {
+    // rows inserted, fewer than keys.size() means some keys were taken in the meantime (not which ones)
+    int reserveAll(List<IdempotencyKey> keys);
+}
@@ -0,0 +1,43 @@
+package com.example.Connect_Money_API.repository;
+
+import com.example.Connect_Money_API.model.IdempotencyKey;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// An explicit multi row statement and not a JDBC batch: with rewriteBatchedStatements the MySQL driver
+// answers a batch with "no info" for every row, this way we at least get the total
+class IdempotencyKeyBatchInsertImpl implements IdempotencyKeyBatchInsert {
+
+    private static final int ROWS_PER_STATEMENT = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    IdempotencyKeyBatchInsertImpl(JdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int reserveAll(List<IdempotencyKey> keys){
+        // in key order, so two batches with keys in common lock them in the same order instead of deadlocking
+        List<IdempotencyKey> sorted = new ArrayList<>(keys);
+        sorted.sort(Comparator.comparing(IdempotencyKey::getIdempotencyKey));
+
+        int inserted = 0;
+        for (int from = 0; from < sorted.size(); from += ROWS_PER_STATEMENT) {
+            List<IdempotencyKey> chunk = sorted.subList(from, Math.min(from + ROWS_PER_STATEMENT, sorted.size()));
+            List<Object> args = new ArrayList<>(chunk.size() * 3);
+            for (IdempotencyKey key : chunk) {
+                args.add(key.getIdempotencyKey());
+                args.add(key.getTransactionId());
+                args.add(key.getResponseStatus());
+            }
+            inserted += jdbcTemplate.update("INSERT IGNORE INTO idempotency_keys (idempotency_key, transaction_id, processed, response_status, created_at) VALUES "
+                    + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, TRUE, ?, CURRENT_TIMESTAMP(6))")), args.toArray());
+        }
+        return inserted;
+    }
+}
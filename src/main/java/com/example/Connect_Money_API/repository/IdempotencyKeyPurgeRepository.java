@@ -0,0 +1,49 @@
+package com.example.Connect_Money_API.repository;
+
+import com.example.Connect_Money_API.util.DatabaseVendor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+// The bulk side of idempotency_keys, see IdempotencyKeyPurgeService. The rows are picked first and then
+// deleted by primary key, so a chunk locks exactly those rows and replicates the same way everywhere.
+@Repository
+public class IdempotencyKeyPurgeRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SingletonSupplier<Boolean> mysql;
+
+    public IdempotencyKeyPurgeRepository(JdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+        this.mysql = SingletonSupplier.of(() -> jdbcTemplate.execute(
+                (ConnectionCallback<Boolean>) connection -> DatabaseVendor.isMySql(connection.getMetaData())));
+    }
+
+    // oldest first, walks idx_idempotency_created_at
+    public List<String> findExpiredKeys(LocalDateTime before, int limit){
+        return jdbcTemplate.queryForList("SELECT idempotency_key FROM idempotency_keys WHERE created_at < ? ORDER BY created_at LIMIT ?",
+                String.class, Timestamp.valueOf(before), limit);
+    }
+
+    public int deleteKeys(List<String> keys){
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(keys.size(), "?"));
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key IN (" + placeholders + ")", keys.toArray());
+    }
+
+    // MySQL's own estimate, a COUNT(*) would scan the whole index every run
+    public long estimateRows(){
+        Long rows = mysql.obtain()
+                ? jdbcTemplate.queryForObject("SELECT table_rows FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = 'idempotency_keys'", Long.class)
+                : jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_keys", Long.class);
+        return rows == null ? 0 : rows;
+    }
+}
@@ -2,12 +2,28 @@ package com.example.Connect_Money_API.repository;
 
 import com.example.Connect_Money_API.model.IdempotencyKey;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import javax.swing.text.html.Option;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String>, IdempotencyKeyBatchInsert {
     Optional<IdempotencyKey> findIdempotencyKeyByIdempotencyKey(String idempotencyKeyId);
+
+    @Query("select k from IdempotencyKey k where k.idempotencyKey in :keys")
+    List<IdempotencyKey> findExistingKeys(@Param("keys") Collection<String> keys);
+
+    // 1 = the key is ours now, 0 = somebody used it before (a concurrent insert of the same key waits for that one to finish)
+    @Modifying
+    @Query(value = """
+            INSERT IGNORE INTO idempotency_keys (idempotency_key, transaction_id, processed, response_status, created_at)
+            VALUES (:idempotencyKey, :transactionId, TRUE, :responseStatus, CURRENT_TIMESTAMP(6))""", nativeQuery = true)
+    int reserve(@Param("idempotencyKey") String idempotencyKey,
+                @Param("transactionId") String transactionId,
+                @Param("responseStatus") int responseStatus);
 }
@@ -0,0 +1,38 @@
+package com.example.Connect_Money_API.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The bulk side of rate_limit_buckets, see RateLimitBucketPurgeService. Same pick-then-delete-by-id
+// as IdempotencyKeyPurgeRepository, the delete checks updated_at again so a bucket used in between stays.
+@Repository
+public class RateLimitBucketRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RateLimitBucketRepository(JdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // oldest first, walks idx_rate_limit_updated_at
+    public List<Long> findIdleIds(LocalDateTime before, int limit){
+        return jdbcTemplate.queryForList("SELECT id FROM rate_limit_buckets WHERE updated_at < ? ORDER BY updated_at LIMIT ?",
+                Long.class, Timestamp.valueOf(before), limit);
+    }
+
+    public int deleteIdle(List<Long> ids, LocalDateTime before){
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        List<Object> args = new ArrayList<>(ids);
+        args.add(Timestamp.valueOf(before));
+        return jdbcTemplate.update("DELETE FROM rate_limit_buckets WHERE id IN (" + placeholders + ") AND updated_at < ?", args.toArray());
+    }
+}
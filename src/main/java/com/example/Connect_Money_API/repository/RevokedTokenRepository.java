@@ -0,0 +1,48 @@
+package com.example.Connect_Money_API.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// revoked_tokens, see TokenRevocations. Only ids of tokens that haven't expired yet matter.
+@Repository
+public class RevokedTokenRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RevokedTokenRepository(JdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // revoking the same token twice is fine
+    public void insert(String tokenId, String clientId, LocalDateTime expiresAt, LocalDateTime revokedAt){
+        try {
+            jdbcTemplate.update("INSERT INTO revoked_tokens (token_id, client_id, expires_at, revoked_at) VALUES (?, ?, ?, ?)",
+                    tokenId, clientId, Timestamp.valueOf(expiresAt), Timestamp.valueOf(revokedAt));
+        } catch (DuplicateKeyException e) {
+            // already there
+        }
+    }
+
+    public boolean isRevoked(String tokenId){
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM revoked_tokens WHERE token_id = ?", Integer.class, tokenId);
+        return rows != null && rows > 0;
+    }
+
+    public List<String> findUnexpired(LocalDateTime now){
+        return jdbcTemplate.queryForList("SELECT token_id FROM revoked_tokens WHERE expires_at > ?", String.class, Timestamp.valueOf(now));
+    }
+
+    // walks idx_revoked_tokens_revoked_at
+    public List<String> findRevokedSince(LocalDateTime since){
+        return jdbcTemplate.queryForList("SELECT token_id FROM revoked_tokens WHERE revoked_at >= ?", String.class, Timestamp.valueOf(since));
+    }
+
+    public int deleteExpired(LocalDateTime now){
+        return jdbcTemplate.update("DELETE FROM revoked_tokens WHERE expires_at < ?", Timestamp.valueOf(now));
+    }
+}
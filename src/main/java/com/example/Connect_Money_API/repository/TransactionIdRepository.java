@@ -0,0 +1,62 @@
+package com.example.Connect_Money_API.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// transaction_ids, the global unique index of transaction ids (see V17). The insert has to run in the
+// same DB transaction as the transactions rows, a duplicate throws DuplicateKeyException (409) and rolls both back.
+@Repository
+public class TransactionIdRepository {
+
+    private static final int ROWS_PER_STATEMENT = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TransactionIdRepository(NamedParameterJdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void claim(Collection<String> transactionIds){
+        if (transactionIds.isEmpty()) {
+            return;
+        }
+        List<MapSqlParameterSource> rows = new ArrayList<>();
+        for (String transactionId : transactionIds) {
+            rows.add(new MapSqlParameterSource("transactionId", transactionId));
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO transaction_ids (transaction_id) VALUES (:transactionId)",
+                rows.toArray(MapSqlParameterSource[]::new));
+    }
+
+    // the batch path's claim: INSERT IGNORE instead of failing on a duplicate, returns how many ids were new.
+    // One multi row statement per chunk for the total (a rewritten JDBC batch doesn't report counts), in id
+    // order so concurrent batches with ids in common don't deadlock
+    public int claimNew(Collection<String> transactionIds){
+        List<String> sorted = transactionIds.stream().sorted().toList();
+        int inserted = 0;
+        for (int from = 0; from < sorted.size(); from += ROWS_PER_STATEMENT) {
+            List<String> chunk = sorted.subList(from, Math.min(from + ROWS_PER_STATEMENT, sorted.size()));
+            inserted += jdbcTemplate.getJdbcTemplate().update("INSERT IGNORE INTO transaction_ids (transaction_id) VALUES "
+                            + String.join(", ", Collections.nCopies(chunk.size(), "(?)")),
+                    chunk.toArray());
+        }
+        return inserted;
+    }
+
+    // only for an id claimed earlier in the same DB transaction
+    public void release(String transactionId){
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM transaction_ids WHERE transaction_id = ?", transactionId);
+    }
+
+    // covers archived transactions too
+    public List<String> findExisting(Collection<String> transactionIds){
+        return jdbcTemplate.queryForList("SELECT transaction_id FROM transaction_ids WHERE transaction_id IN (:transactionIds)",
+                new MapSqlParameterSource("transactionIds", transactionIds), String.class);
+    }
+}
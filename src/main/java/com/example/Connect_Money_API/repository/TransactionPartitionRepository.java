@@ -0,0 +1,102 @@
+package com.example.Connect_Money_API.repository;
+
+import com.example.Connect_Money_API.util.DatabaseVendor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// DDL and bulk moves behind TransactionArchiveService. The partitions only exist on MySQL
+// (db/vendor/mysql/V10), on anything else findPartitions() is empty and only moveExpired() is used.
+@Repository
+public class TransactionPartitionRepository {
+
+    public static final String FUTURE_PARTITION = "p_future";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final String COLUMNS = "id, transaction_id, type, status, amount, currency, card_uid, transaction_date, client_id, created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SingletonSupplier<Boolean> mysql;
+
+    public TransactionPartitionRepository(JdbcTemplate jdbcTemplate){
+        this.jdbcTemplate = jdbcTemplate;
+        this.mysql = SingletonSupplier.of(() -> jdbcTemplate.execute(
+                (ConnectionCallback<Boolean>) connection -> DatabaseVendor.isMySql(connection.getMetaData())));
+    }
+
+    // in partition order, the last one is p_future (lessThan null) when the table is partitioned
+    public List<MonthPartition> findPartitions(){
+        if (!mysql.obtain()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("""
+                SELECT partition_name, partition_description FROM information_schema.partitions
+                WHERE table_schema = DATABASE() AND table_name = 'transactions' AND partition_name IS NOT NULL
+                ORDER BY partition_ordinal_position""",
+                (rs, i) -> new MonthPartition(rs.getString(1), lessThan(rs.getString(2))));
+    }
+
+    // splits the month off p_future, which is empty as long as enough months are made ahead so it's instant
+    public void addPartition(LocalDate monthStart){
+        jdbcTemplate.execute("ALTER TABLE transactions REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                + "PARTITION " + partitionName(monthStart) + " VALUES LESS THAN ('" + monthStart.plusMonths(1) + "'), "
+                + "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+    }
+
+    // swaps the partition's rows with the (empty) transactions_exchange table, metadata only
+    public void exchangePartition(String partition){
+        jdbcTemplate.execute("ALTER TABLE transactions EXCHANGE PARTITION " + partition + " WITH TABLE transactions_exchange");
+    }
+
+    public void dropPartition(String partition){
+        jdbcTemplate.execute("ALTER TABLE transactions DROP PARTITION " + partition);
+    }
+
+    // moves up to batchSize rows dated before `before` from transactions to the archive, returns how many.
+    // Has to run in a transaction so the copy and the delete go together
+    public int moveExpired(LocalDate before, int batchSize){
+        return move("transactions", before, batchSize);
+    }
+
+    // same, from what the last exchanges left in transactions_exchange
+    public int moveExchanged(int batchSize){
+        return move("transactions_exchange", null, batchSize);
+    }
+
+    private int move(String source, LocalDate before, int batchSize){
+        String where = before == null ? "" : " WHERE transaction_date < ?";
+        Object[] beforeArg = before == null ? new Object[0] : new Object[]{Date.valueOf(before)};
+
+        // the batch is cut by id so the copy and the delete see exactly the same rows
+        Long lastId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM (SELECT id FROM " + source + where
+                + " ORDER BY id LIMIT " + batchSize + ") batch", Long.class, beforeArg);
+        if (lastId == null) {
+            return 0;
+        }
+
+        String batch = (before == null ? " WHERE" : where + " AND") + " id <= " + lastId;
+        jdbcTemplate.update("INSERT INTO transactions_archive (" + COLUMNS + ") SELECT " + COLUMNS + " FROM " + source + batch, beforeArg);
+        return jdbcTemplate.update("DELETE FROM " + source + batch, beforeArg);
+    }
+
+    public static String partitionName(LocalDate monthStart){
+        return PARTITION_NAME.format(monthStart);
+    }
+
+    // RANGE COLUMNS descriptions come back quoted, like '2025-02-01', or as MAXVALUE
+    static LocalDate lessThan(String description){
+        if (description == null || description.equals("MAXVALUE")) {
+            return null;
+        }
+        return LocalDate.parse(description.replace("'", ""));
+    }
+
+    public record MonthPartition(String name, LocalDate lessThan) {
+    }
+}
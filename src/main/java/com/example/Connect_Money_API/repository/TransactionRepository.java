@@ -1,12 +1,39 @@
 package com.example.Connect_Money_API.repository;
 
 import com.example.Connect_Money_API.model.Transaction;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     Optional<Transaction> findTransactionByTransactionId(String transactionId);
+
+    // keyset page: rows after (afterDate, afterId) in (transaction_date, id) order, walks idx_client_date_id
+    // so the cost doesn't grow with the page number like OFFSET does. afterDate/afterId are null for the first page
+    @Query("""
+            select t from Transaction t
+            where t.clientId = :clientId
+              and (:afterDate is null or t.transactionDate > :afterDate or (t.transactionDate = :afterDate and t.id > :afterId))
+              and (:fromDate is null or t.transactionDate >= :fromDate)
+              and (:toDate is null or t.transactionDate <= :toDate)
+              and (:status is null or t.status = :status)
+              and (:type is null or t.type = :type)
+              and (:cardUid is null or t.cardUid = :cardUid)
+            order by t.transactionDate, t.id""")
+    List<Transaction> findPage(@Param("clientId") String clientId,
+                               @Param("afterDate") LocalDate afterDate,
+                               @Param("afterId") Long afterId,
+                               @Param("fromDate") LocalDate fromDate,
+                               @Param("toDate") LocalDate toDate,
+                               @Param("status") String status,
+                               @Param("type") String type,
+                               @Param("cardUid") String cardUid,
+                               Limit limit);
 }
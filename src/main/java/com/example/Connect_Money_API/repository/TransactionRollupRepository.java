@@ -0,0 +1,139 @@
+package com.example.Connect_Money_API.repository;
+
+import com.example.Connect_Money_API.dto.DailySummary;
+import com.example.Connect_Money_API.dto.TransactionFilter;
+import com.example.Connect_Money_API.model.Transaction;
+import com.example.Connect_Money_API.model.TransactionStatus;
+import com.example.Connect_Money_API.model.TransactionType;
+import com.example.Connect_Money_API.util.MinorUnits;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// transaction_daily_rollup has no entity, it's only ever added to with an upsert or read as a summary
+@Repository
+@RequiredArgsConstructor
+public class TransactionRollupRepository {
+
+    private static final String INCREMENT = """
+            INSERT INTO transaction_daily_rollup (client_id, transaction_date, currency, type, status, transaction_count, total_amount)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE transaction_count = transaction_count + VALUES(transaction_count),
+                                    total_amount = total_amount + VALUES(total_amount)""";
+
+    private static final String INSERT = """
+            INSERT INTO transaction_daily_rollup (client_id, transaction_date, currency, type, status, transaction_count, total_amount)
+            VALUES (?, ?, ?, ?, ?, ?, ?)""";
+
+    // always the same order so two batches touching the same rows lock them in the same order, no deadlock
+    private static final Comparator<Transaction> KEY_ORDER = Comparator.comparing(Transaction::getClientId)
+            .thenComparing(Transaction::getTransactionDate)
+            .thenComparing(Transaction::getCurrency)
+            .thenComparing(Transaction::getType)
+            .thenComparing(Transaction::getStatus);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // has to run in the transaction that inserts them, so the rollup and the rows commit or roll back together
+    public void increment(Collection<Transaction> transactions){
+        if (transactions.isEmpty()) {
+            return;
+        }
+        // one upsert per rollup row, a batch of the same day/type/status is a single statement
+        Map<Transaction, long[]> counts = new TreeMap<>(KEY_ORDER);
+        Map<Transaction, BigDecimal> totals = new TreeMap<>(KEY_ORDER);
+        for (Transaction transaction : transactions) {
+            counts.computeIfAbsent(transaction, key -> new long[1])[0]++;
+            totals.merge(transaction, transaction.getAmount(), BigDecimal::add);
+        }
+
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> rows.add(new Object[]{
+                key.getClientId(), Date.valueOf(key.getTransactionDate()), key.getCurrency(), key.getType(), key.getStatus(),
+                count[0], totals.get(key)}));
+        jdbcTemplate.batchUpdate(INCREMENT, rows);
+    }
+
+    public List<DailySummary> findSummary(String clientId, TransactionFilter filter){
+        StringBuilder sql = new StringBuilder("""
+                SELECT transaction_date, currency, type, status, transaction_count, total_amount
+                FROM transaction_daily_rollup WHERE client_id = ?""");
+        List<Object> params = new ArrayList<>(List.of(clientId));
+        if (filter.getFrom() != null) {
+            sql.append(" AND transaction_date >= ?");
+            params.add(Date.valueOf(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND transaction_date <= ?");
+            params.add(Date.valueOf(filter.getTo()));
+        }
+        if (filter.getCurrency() != null) {
+            sql.append(" AND currency = ?");
+            params.add(filter.getCurrency());
+        }
+        if (filter.getType() != null) {
+            sql.append(" AND type = ?");
+            params.add(filter.getType());
+        }
+        if (filter.getStatus() != null) {
+            sql.append(" AND status = ?");
+            params.add(filter.getStatus());
+        }
+        sql.append(" ORDER BY transaction_date, currency, type, status");
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> DailySummary.builder()
+                .date(rs.getDate(1).toLocalDate())
+                .currency(rs.getString(2))
+                .type(rs.getString(3))
+                .status(rs.getString(4))
+                .count(rs.getLong(5))
+                .totalAmount(rs.getBigDecimal(6))
+                .build(), params.toArray());
+    }
+
+    public List<String> findClientIds(){
+        return jdbcTemplate.queryForList("""
+                SELECT c.client_id FROM client c
+                WHERE EXISTS (SELECT 1 FROM transactions t WHERE t.client_id = c.id)""", String.class);
+    }
+
+    // null, null if the client has no transactions
+    public LocalDate[] findDateRange(String clientId){
+        return jdbcTemplate.queryForObject("""
+                SELECT MIN(transaction_date), MAX(transaction_date) FROM transactions
+                WHERE client_id = (SELECT id FROM client WHERE client_id = ?)""",
+                (rs, rowNum) -> new LocalDate[]{
+                        rs.getDate(1) == null ? null : rs.getDate(1).toLocalDate(),
+                        rs.getDate(2) == null ? null : rs.getDate(2).toLocalDate()},
+                clientId);
+    }
+
+    // recomputes one client's days from the raw rows, both statements walk idx_client_date_id / the primary key.
+    // The sums come back in minor units and codes, so the rows are made here instead of with INSERT ... SELECT
+    public int rebuild(String clientId, LocalDate from, LocalDate to){
+        jdbcTemplate.update("DELETE FROM transaction_daily_rollup WHERE client_id = ? AND transaction_date BETWEEN ? AND ?",
+                clientId, Date.valueOf(from), Date.valueOf(to));
+        List<Object[]> rows = jdbcTemplate.query("""
+                SELECT transaction_date, currency, type, status, COUNT(*), SUM(amount)
+                FROM transactions
+                WHERE client_id = (SELECT id FROM client WHERE client_id = ?) AND transaction_date BETWEEN ? AND ?
+                GROUP BY transaction_date, currency, type, status""",
+                (rs, rowNum) -> new Object[]{
+                        clientId, rs.getDate(1), rs.getString(2),
+                        TransactionType.fromCode(rs.getByte(3)).name(), TransactionStatus.fromCode(rs.getByte(4)).name(),
+                        rs.getLong(5), MinorUnits.fromMinor(rs.getBigDecimal(6), rs.getString(2))},
+                clientId, Date.valueOf(from), Date.valueOf(to));
+        jdbcTemplate.batchUpdate(INSERT, rows);
+        return rows.size();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.Connect_Money_API.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// How many requests of one route may run at once, found by AIMD like TCP's congestion window:
+// - a request that took longer than latencyThreshold or came back 503 (DB guard or hashing pool full)
+//   cuts the limit by backoffRatio, at most once per round: only requests admitted after the last cut count,
+//   the ones already running when it happened were admitted under the old limit
+// - any other one adds 1/limit, so about +1 per `limit` requests, but only while at least half the limit
+//   is used, an idle route doesn't grow a limit it never tried
+// Everything above the limit is turned away at once instead of queueing in Tomcat and Hikari, so the
+// admitted ones keep their latency while the DB is slow.
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter shed;
+
+    private volatile double limit;
+    private long lastDecreaseAt;
+
+    public AdaptiveConcurrencyLimit(String route, int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                    long latencyThresholdMillis, LongSupplier nanoClock, MeterRegistry meterRegistry){
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseAt = nanoClock.getAsLong();
+
+        Gauge.builder("http.concurrency.limit", this, AdaptiveConcurrencyLimit::limit).tag("route", route).register(meterRegistry);
+        Gauge.builder("http.concurrency.in_flight", inFlight, AtomicInteger::get).tag("route", route).register(meterRegistry);
+        this.shed = Counter.builder("http.concurrency.shed").tag("route", route).register(meterRegistry);
+    }
+
+    // the start time to hand back to release(), or -1 when the request has to be shed
+    public long tryAcquire(){
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                shed.increment();
+                return -1;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return nanoClock.getAsLong();
+    }
+
+    public void release(long startedAt, boolean overloaded){
+        int inFlightBefore = inFlight.getAndDecrement();
+        long now = nanoClock.getAsLong();
+        synchronized (this) {
+            if (overloaded || now - startedAt > latencyThresholdNanos) {
+                if (startedAt - lastDecreaseAt >= 0) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseAt = now;
+                }
+            } else if (inFlightBefore * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    // for a response whose latency says nothing about the load, the limit stays as it is
+    public void releaseUntimed(){
+        inFlight.decrementAndGet();
+    }
+
+    public int limit(){
+        return (int) limit;
+    }
+
+    public int inFlight(){
+        return inFlight.get();
+    }
+}
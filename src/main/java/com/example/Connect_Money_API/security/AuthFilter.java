@@ -14,16 +14,19 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Optional;
 
 @Slf4j
 @Component
 public class AuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
+    private final TokenRevocations tokenRevocations;
 
     @Autowired
-    AuthFilter(JwtService jwtService){
+    AuthFilter(JwtService jwtService, TokenRevocations tokenRevocations){
         this.jwtService = jwtService;
+        this.tokenRevocations = tokenRevocations;
     }
 
 
@@ -39,13 +42,15 @@ public class AuthFilter extends OncePerRequestFilter {
         }
 
         final String token = authHeader.substring(7);
-        final String clientId = jwtService.extractClientId(token);
 
         try {
-            if(clientId != null && SecurityContextHolder.getContext().getAuthentication() == null){
-                if(jwtService.isTokenValid(token)){
+            if(SecurityContextHolder.getContext().getAuthentication() == null){
+                // one verification per request, and none at all if the token was seen before.
+                // The revocation check is in memory too unless the Bloom filter says maybe
+                Optional<VerifiedToken> verified = jwtService.verify(token);
+                if(verified.isPresent() && verified.get().clientId() != null && !tokenRevocations.isRevoked(verified.get())){
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            clientId,
+                            verified.get().clientId(),
                             null,
                             Collections.emptyList()
                     );
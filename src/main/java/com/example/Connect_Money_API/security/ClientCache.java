@@ -0,0 +1,64 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.model.Client;
+import com.example.Connect_Money_API.repository.ClientRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// Clients by client id, so a token request doesn't read MySQL every time. An entry is reloaded in the
+// background once it's older than the flush interval, which is also how far this node can be behind a
+// lockout written by another one. Unknown ids are kept too (as empty) so random ids don't each cost a query.
+// Change a client's secret or active flag through invalidate() or it shows up after the next reload.
+// AuthFilter reads the active flag and the token watermark from here on every request.
+@Component
+public class ClientCache {
+
+    private final LoadingCache<String, Optional<ClientSnapshot>> clients;
+
+    public ClientCache(ClientRepository clientRepository,
+                       MeterRegistry meterRegistry,
+                       @Value("${security.client-credentials.state.cache-max-size}") long maxClients,
+                       @Value("${security.client-credentials.state.flush-interval}") long flushIntervalMillis){
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .refreshAfterWrite(Duration.ofMillis(flushIntervalMillis))
+                .recordStats()
+                .build(clientId -> clientRepository.findClientByClientId(clientId).map(ClientSnapshot::of));
+        CaffeineCacheMetrics.monitor(meterRegistry, clients, "clients");
+    }
+
+    public Optional<ClientSnapshot> get(String clientId){
+        return clients.get(clientId);
+    }
+
+    // what a flush read back from the table, so this node sees the other nodes' attempts right away
+    public void updateAttempts(String clientId, int failedAttempts, LocalDateTime lockedUntil){
+        clients.asMap().computeIfPresent(clientId, (id, cached) -> cached.map(client -> client.withAttempts(failedAttempts, lockedUntil)));
+    }
+
+    public void invalidate(String clientId){
+        clients.invalidate(clientId);
+    }
+
+    public record ClientSnapshot(String clientId, String clientSecret, boolean active, int failedAttempts, LocalDateTime lockedUntil,
+                                 LocalDateTime tokensRevokedBefore) {
+
+        static ClientSnapshot of(Client client){
+            return new ClientSnapshot(client.getClientId(), client.getClientSecret(), Boolean.TRUE.equals(client.getActive()),
+                    client.getFailedAttempts() == null ? 0 : client.getFailedAttempts(), client.getLockedUntil(),
+                    client.getTokensRevokedBefore());
+        }
+
+        ClientSnapshot withAttempts(int failedAttempts, LocalDateTime lockedUntil){
+            return new ClientSnapshot(clientId, clientSecret, active, failedAttempts, lockedUntil, tokensRevokedBefore);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.Connect_Money_API.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+// Token buckets for the rate limiter, packed in primitive arrays instead of one bucket4j object per key.
+// The number of entries is fixed up front so the memory stays the same however many IPs show up.
+//
+// Every slot is two longs: the 64 bit hash of the key and the state (tokens << 32 | last refill second).
+// A bucket that is fully refilled is the same as a new one, so its slot is simply reused. If a key
+// can't find a slot in its probe window the bucket with the most tokens left is dropped.
+// This is the per node limiter, see DistributedRateLimiter for the shared one.
+@Component
+@ConditionalOnProperty(name = "security.rate-limit.mode", havingValue = "local", matchIfMissing = true)
+public class CompactBucketStore implements RateLimiter {
+
+    private static final int SEGMENTS = 64;
+    private static final int PROBE = 8;
+    private static final long EMPTY = 0;
+
+    private final long capacity;
+    private final long refillTokens;
+    private final long refillSeconds;
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    @Autowired
+    public CompactBucketStore(@Value("${security.rate-limit.capacity}") long capacity,
+                              @Value("${security.rate-limit.refill-tokens}") long refillTokens,
+                              @Value("${security.rate-limit.refill-duration}") long refillSeconds,
+                              @Value("${security.rate-limit.max-entries}") int maxEntries){
+        this(capacity, refillTokens, refillSeconds, maxEntries, System::nanoTime);
+    }
+
+    CompactBucketStore(long capacity, long refillTokens, long refillSeconds, int maxEntries, LongSupplier nanoClock){
+        this.capacity = capacity;
+        this.refillTokens = refillTokens;
+        this.refillSeconds = refillSeconds;
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+
+        int slotsPerSegment = Math.max(PROBE, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(slotsPerSegment);
+        }
+    }
+
+    @Override
+    public boolean tryConsume(String key){
+        long hash = hash(key);
+        int now = (int) ((nanoClock.getAsLong() - startNanos) / 1_000_000_000L);
+        return segments[(int) (hash >>> 58)].tryConsume(hash, now); // top 6 bits pick the segment
+    }
+
+    // buckets that aren't fully refilled yet, i.e. the ones that still carry state
+    public int size(){
+        int now = (int) ((nanoClock.getAsLong() - startNanos) / 1_000_000_000L);
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.activeBuckets(now);
+        }
+        return size;
+    }
+
+    public int maxEntries(){
+        return segments.length * segments[0].keys.length;
+    }
+
+    // FNV-1a, no allocation per call
+    private static long hash(String key){
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    private final class Segment {
+        private final long[] keys;
+        private final long[] states;
+
+        Segment(int slots){
+            this.keys = new long[slots];
+            this.states = new long[slots];
+        }
+
+        synchronized boolean tryConsume(long hash, int now){
+            int start = (int) ((hash & Long.MAX_VALUE) % keys.length);
+            int free = -1;
+            int mostTokens = -1;
+            long mostTokensCount = -1;
+
+            for (int i = 0; i < PROBE; i++) {
+                int slot = (start + i) % keys.length;
+                if (keys[slot] == hash) {
+                    return consume(slot, now);
+                }
+
+                long tokens = keys[slot] == EMPTY ? capacity : refilledTokens(states[slot], now);
+                if (free < 0 && tokens >= capacity) {
+                    free = slot; // empty, or idle long enough to be a brand new bucket again
+                }
+                if (tokens > mostTokensCount) {
+                    mostTokensCount = tokens;
+                    mostTokens = slot;
+                }
+            }
+
+            int slot = free >= 0 ? free : mostTokens;
+            keys[slot] = hash;
+            states[slot] = pack(capacity, now);
+            return consume(slot, now);
+        }
+
+        private boolean consume(int slot, int now){
+            long state = states[slot];
+            long tokens = refilledTokens(state, now);
+            int lastRefill = refilledAt(state, now);
+            if (tokens < 1) {
+                states[slot] = pack(tokens, lastRefill);
+                return false;
+            }
+            states[slot] = pack(tokens - 1, lastRefill);
+            return true;
+        }
+
+        synchronized int activeBuckets(int now){
+            int active = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY && refilledTokens(states[slot], now) < capacity) {
+                    active++;
+                }
+            }
+            return active;
+        }
+    }
+
+    // same as bucket4j's intervally refill: refillTokens at once every refillSeconds
+    private long refilledTokens(long state, int now){
+        long periods = (now - (int) state) / refillSeconds;
+        return Math.min(capacity, (state >>> 32) + periods * refillTokens);
+    }
+
+    private int refilledAt(long state, int now){
+        int lastRefill = (int) state;
+        return (int) (lastRefill + (now - lastRefill) / refillSeconds * refillSeconds);
+    }
+
+    private static long pack(long tokens, int lastRefill){
+        return tokens << 32 | (lastRefill & 0xffffffffL);
+    }
+}
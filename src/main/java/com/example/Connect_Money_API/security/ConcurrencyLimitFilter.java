@@ -0,0 +1,103 @@
+package com.example.Connect_Money_API.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Load shedding in front of everything else: the transaction routes and the token route get an
+// AdaptiveConcurrencyLimit, past it the request gets a 503 with Retry-After before it's authenticated,
+// rate limited or touches the DB. Other routes aren't limited.
+// Single creates, batches and reads each have their own limit and latency threshold: a batch of 1000 or a
+// summary over a year is slow by design and would otherwise cut the limit of the single POSTs.
+// A replayed response isn't timed, a retry that waited for its first attempt is as slow as that one was.
+// An export or async ingestion gives its slot back when the request goes async, what runs after that is
+// the DB guard's job.
+@Component
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final long retryAfterSeconds;
+    private final AdaptiveConcurrencyLimit create;
+    private final AdaptiveConcurrencyLimit batch;
+    private final AdaptiveConcurrencyLimit read;
+    private final AdaptiveConcurrencyLimit token;
+
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+                                  @Value("${security.concurrency-limit.enabled}") boolean enabled,
+                                  @Value("${security.concurrency-limit.initial-limit}") int initialLimit,
+                                  @Value("${security.concurrency-limit.min-limit}") int minLimit,
+                                  @Value("${security.concurrency-limit.max-limit}") int maxLimit,
+                                  @Value("${security.concurrency-limit.backoff-ratio}") double backoffRatio,
+                                  @Value("${security.concurrency-limit.retry-after}") long retryAfterSeconds,
+                                  @Value("${security.concurrency-limit.create.latency-threshold}") long createLatencyMillis,
+                                  @Value("${security.concurrency-limit.batch.latency-threshold}") long batchLatencyMillis,
+                                  @Value("${security.concurrency-limit.read.latency-threshold}") long readLatencyMillis,
+                                  @Value("${security.concurrency-limit.token.latency-threshold}") long tokenLatencyMillis){
+        this.enabled = enabled;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.create = new AdaptiveConcurrencyLimit("POST /v1/transactions", initialLimit, minLimit, maxLimit, backoffRatio,
+                createLatencyMillis, System::nanoTime, meterRegistry);
+        this.batch = new AdaptiveConcurrencyLimit("POST /v1/transactions/batch", initialLimit, minLimit, maxLimit, backoffRatio,
+                batchLatencyMillis, System::nanoTime, meterRegistry);
+        this.read = new AdaptiveConcurrencyLimit("GET /v1/transactions", initialLimit, minLimit, maxLimit, backoffRatio,
+                readLatencyMillis, System::nanoTime, meterRegistry);
+        this.token = new AdaptiveConcurrencyLimit("POST /v1/protocol/openid-connect/token", initialLimit, minLimit, maxLimit, backoffRatio,
+                tokenLatencyMillis, System::nanoTime, meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request){
+        return !enabled || limitFor(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        AdaptiveConcurrencyLimit limit = limitFor(request);
+        long startedAt = limit.tryAcquire();
+        if (startedAt < 0) {
+            log.warn("Shedding {}: {} requests in flight", request.getRequestURI(), limit.inFlight());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.getWriter().write("{\"error\":\"Service is busy, please retry later\"}");
+            return;
+        }
+
+        boolean overloaded = true; // an exception out of the chain counts as one
+        boolean replayed = false;
+        try {
+            filterChain.doFilter(request, response);
+            overloaded = response.getStatus() == HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+            replayed = "true".equals(response.getHeader("Idempotent-Replayed"));
+        } finally {
+            if (replayed) {
+                limit.releaseUntimed();
+            } else {
+                limit.release(startedAt, overloaded);
+            }
+        }
+    }
+
+    private AdaptiveConcurrencyLimit limitFor(HttpServletRequest request){
+        String path = request.getRequestURI();
+        if (path.equals("/v1/transactions") || path.startsWith("/v1/transactions/")) {
+            if (!"POST".equals(request.getMethod())) {
+                return read;
+            }
+            return path.equals("/v1/transactions/batch") ? batch : create;
+        }
+        if (path.equals("/v1/protocol/openid-connect/token")) {
+            return token;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.exception.ServiceBusyException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// BCrypt(12) costs ~250ms of CPU, so it runs on its own small pool instead of the tomcat threads.
+// When the queue is full the token request is rejected with 503 instead of piling up.
+@Component
+@Slf4j
+public class CredentialVerifier {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor hashingExecutor;
+    private final long timeoutSeconds;
+    private final long retryAfterSeconds;
+
+    // clientId -> HMAC(clientId, secret, stored hash) of the last good login, never the plain secret.
+    // The stored hash is part of it so a changed secret doesn't match anymore.
+    private final Cache<String, byte[]> recentCredentials;
+    private final SecretKeySpec digestKey;
+
+    private final Timer hashTimer;
+    private final Counter rejectedCounter;
+
+    public CredentialVerifier(PasswordEncoder passwordEncoder,
+                              MeterRegistry meterRegistry,
+                              @Value("${security.client-credentials.hashing.threads}") int threads,
+                              @Value("${security.client-credentials.hashing.queue-capacity}") int queueCapacity,
+                              @Value("${security.client-credentials.hashing.timeout}") long timeoutSeconds,
+                              @Value("${security.client-credentials.hashing.retry-after}") long retryAfterSeconds,
+                              @Value("${security.client-credentials.verified-cache.max-size}") long maxCachedClients,
+                              @Value("${security.client-credentials.verified-cache.ttl}") long cacheTtlSeconds){
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutSeconds = timeoutSeconds;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.hashingExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "credential-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.recentCredentials = Caffeine.newBuilder()
+                .maximumSize(maxCachedClients)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .recordStats()
+                .build();
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.digestKey = new SecretKeySpec(key, "HmacSHA256");
+
+        this.hashTimer = Timer.builder("security.credentials.hash")
+                .description("Time spent in BCrypt verifying client secrets")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("security.credentials.hash.rejected")
+                .description("Token requests rejected because the hashing queue was full")
+                .register(meterRegistry);
+        Gauge.builder("security.credentials.hash.queue", hashingExecutor, executor -> executor.getQueue().size())
+                .description("Credential checks waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("security.credentials.hash.active", hashingExecutor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, recentCredentials, "client_credentials");
+    }
+
+    public boolean matches(String clientId, String rawSecret, String storedHash){
+        byte[] digest = digest(clientId, rawSecret, storedHash);
+        byte[] known = recentCredentials.getIfPresent(clientId);
+        if (known != null && MessageDigest.isEqual(known, digest)) {
+            return true;
+        }
+
+        boolean matches = bcryptMatches(rawSecret, storedHash);
+        if (matches) {
+            recentCredentials.put(clientId, digest);
+        } else {
+            recentCredentials.invalidate(clientId);
+        }
+        return matches;
+    }
+
+    private boolean bcryptMatches(String rawSecret, String storedHash){
+        Future<Boolean> result;
+        try {
+            result = hashingExecutor.submit(() -> hashTimer.record(() -> passwordEncoder.matches(rawSecret, storedHash)));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceBusyException("Credential hashing queue is full", retryAfterSeconds);
+        }
+
+        try {
+            return result.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceBusyException("Credential hashing took too long", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for credential hashing", retryAfterSeconds);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Credential hashing failed", e.getCause());
+        }
+    }
+
+    private byte[] digest(String clientId, String rawSecret, String storedHash){
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(digestKey);
+            mac.update(clientId.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(rawSecret.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(storedHash.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 isn't available", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown(){
+        hashingExecutor.shutdownNow();
+    }
+}
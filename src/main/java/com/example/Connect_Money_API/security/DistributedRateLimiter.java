@@ -0,0 +1,116 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.util.KeyDigest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+// One bucket per key shared by every node through the DB, so the limit doesn't grow with the node count.
+// Each node takes up to sync-tokens locally before it writes back (bucket4j delaying optimization),
+// so the DB sees one round trip per chunk instead of one per request. The price is that the nodes
+// together can go over the limit by about sync-tokens x node count until they sync.
+// If the DB can't be reached (down, or the connection guard says busy) on-failure decides: local falls back
+// to a per node CompactBucketStore, allow lets the request through, reject answers 429.
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "security.rate-limit.mode", havingValue = "distributed")
+public class DistributedRateLimiter implements RateLimiter {
+
+    private final ProxyManager<Long> proxyManager;
+    private final BucketConfiguration configuration;
+    private final Optimization tokenBatching;
+
+    // the proxies hold the local chunk of tokens, so keep them for the hot keys
+    private final Cache<Long, BucketProxy> buckets;
+
+    private final String onFailure;
+    private final RateLimiter fallback;
+    private final SecurityMetrics securityMetrics;
+    // only the first failure and the recovery are logged, not every request while the DB is away
+    private volatile boolean failing;
+
+    public DistributedRateLimiter(DataSource dataSource,
+                                  SecurityMetrics securityMetrics,
+                                  @Value("${security.rate-limit.capacity}") long capacity,
+                                  @Value("${security.rate-limit.refill-tokens}") long refillTokens,
+                                  @Value("${security.rate-limit.refill-duration}") long refillSeconds,
+                                  @Value("${security.rate-limit.max-entries}") long maxEntries,
+                                  @Value("${security.rate-limit.distributed.sync-tokens}") long syncTokens,
+                                  @Value("${security.rate-limit.distributed.sync-interval}") long syncIntervalMillis,
+                                  @Value("${security.rate-limit.distributed.on-failure}") String onFailure){
+        this.proxyManager = new JdbcBucketProxyManager(dataSource);
+        this.configuration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(refillTokens, Duration.ofSeconds(refillSeconds))))
+                .build();
+        // 0 = no local chunk, every request goes to the DB and the limit is exact
+        this.tokenBatching = syncTokens > 0
+                ? Optimizations.delaying(new DelayParameters(syncTokens, Duration.ofMillis(syncIntervalMillis)))
+                : null;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(Duration.ofSeconds(refillSeconds))
+                .build();
+
+        if (!List.of("local", "allow", "reject").contains(onFailure)) {
+            throw new IllegalArgumentException("security.rate-limit.distributed.on-failure must be local, allow or reject, not " + onFailure);
+        }
+        this.onFailure = onFailure;
+        this.fallback = onFailure.equals("local")
+                ? new CompactBucketStore(capacity, refillTokens, refillSeconds, (int) maxEntries)
+                : null;
+        this.securityMetrics = securityMetrics;
+    }
+
+    @Override
+    public boolean tryConsume(String key){
+        long id = KeyDigest.of(key).high();
+        BucketProxy bucket = buckets.get(id, ignored -> {
+            RemoteBucketBuilder<Long> builder = proxyManager.builder();
+            if (tokenBatching != null) {
+                builder = builder.withOptimization(tokenBatching);
+            }
+            return builder.build(id, configuration);
+        });
+        boolean allowed;
+        try {
+            allowed = bucket.tryConsume(1);
+        } catch (RuntimeException e) {
+            buckets.invalidate(id); // its local chunk may be half synced
+            return onFailure(key, e);
+        }
+        if (failing) {
+            failing = false;
+            log.info("Rate limit buckets are reachable again");
+        }
+        return allowed;
+    }
+
+    private boolean onFailure(String key, RuntimeException e){
+        if (!failing) {
+            failing = true;
+            log.warn("Rate limit buckets unreachable, on-failure {} until they are back", onFailure, e);
+        }
+        securityMetrics.rateLimitStoreFailed(onFailure);
+        return switch (onFailure) {
+            case "local" -> fallback.tryConsume(key);
+            case "allow" -> true;
+            default -> false;
+        };
+    }
+}
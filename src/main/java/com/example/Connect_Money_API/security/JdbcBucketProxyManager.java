@@ -0,0 +1,126 @@
+package com.example.Connect_Money_API.security;
+
+import io.github.bucket4j.BucketExceptions;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.AbstractSelectForUpdateBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.LockAndGetResult;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.SelectForUpdateBasedTransaction;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+// bucket4j state kept in the rate_limit_buckets table, one row per key locked with SELECT ... FOR UPDATE.
+// Plain SQL that runs the same on MySQL and on H2 in MySQL mode.
+public class JdbcBucketProxyManager extends AbstractSelectForUpdateBasedProxyManager<Long> {
+
+    private static final String SELECT_FOR_UPDATE = "SELECT state FROM rate_limit_buckets WHERE id = ? FOR UPDATE";
+    private static final String INSERT_EMPTY = "INSERT IGNORE INTO rate_limit_buckets (id, state, updated_at) VALUES (?, NULL, CURRENT_TIMESTAMP(6))";
+    private static final String UPDATE_STATE = "UPDATE rate_limit_buckets SET state = ?, updated_at = CURRENT_TIMESTAMP(6) WHERE id = ?";
+    private static final String DELETE = "DELETE FROM rate_limit_buckets WHERE id = ?";
+
+    private final DataSource dataSource;
+
+    public JdbcBucketProxyManager(DataSource dataSource){
+        super(ClientSideConfig.getDefault());
+        this.dataSource = Objects.requireNonNull(dataSource);
+    }
+
+    @Override
+    protected SelectForUpdateBasedTransaction allocateTransaction(Long key){
+        try {
+            return new JdbcTransaction(dataSource.getConnection(), key);
+        } catch (SQLException e) {
+            throw new BucketExceptions.BucketExecutionException(e);
+        }
+    }
+
+    @Override
+    public void removeProxy(Long key){
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement delete = connection.prepareStatement(DELETE)) {
+            delete.setLong(1, key);
+            delete.executeUpdate();
+        } catch (SQLException e) {
+            throw new BucketExceptions.BucketExecutionException(e);
+        }
+    }
+
+    private record JdbcTransaction(Connection connection, long key) implements SelectForUpdateBasedTransaction {
+
+        @Override
+        public void begin(){
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                throw new BucketExceptions.BucketExecutionException(e);
+            }
+        }
+
+        @Override
+        public LockAndGetResult tryLockAndGet(){
+            try (PreparedStatement select = connection.prepareStatement(SELECT_FOR_UPDATE)) {
+                select.setLong(1, key);
+                try (ResultSet rs = select.executeQuery()) {
+                    return rs.next() ? LockAndGetResult.locked(rs.getBytes(1)) : LockAndGetResult.notLocked();
+                }
+            } catch (SQLException e) {
+                throw new BucketExceptions.BucketExecutionException(e);
+            }
+        }
+
+        @Override
+        public boolean tryInsertEmptyData(){
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_EMPTY)) {
+                insert.setLong(1, key);
+                insert.executeUpdate();
+                return true; // inserted now or by another node, either way the row can be locked
+            } catch (SQLException e) {
+                throw new BucketExceptions.BucketExecutionException(e);
+            }
+        }
+
+        @Override
+        public void update(byte[] data, RemoteBucketState newState){
+            try (PreparedStatement update = connection.prepareStatement(UPDATE_STATE)) {
+                update.setBytes(1, data);
+                update.setLong(2, key);
+                update.executeUpdate();
+            } catch (SQLException e) {
+                throw new BucketExceptions.BucketExecutionException(e);
+            }
+        }
+
+        @Override
+        public void commit(){
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                throw new BucketExceptions.BucketExecutionException(e);
+            }
+        }
+
+        @Override
+        public void rollback(){
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                throw new BucketExceptions.BucketExecutionException(e);
+            }
+        }
+
+        @Override
+        public void release(){
+            try {
+                connection.setAutoCommit(true);
+                connection.close();
+            } catch (SQLException e) {
+                throw new BucketExceptions.BucketExecutionException(e);
+            }
+        }
+    }
+}
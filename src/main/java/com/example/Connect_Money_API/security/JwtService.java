@@ -1,14 +1,30 @@
 package com.example.Connect_Money_API.security;
 
+import com.example.Connect_Money_API.util.KeyDigest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.function.SingletonSupplier;
 
 import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.Hashtable;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtService {
@@ -18,8 +34,59 @@ public class JwtService {
     @Value("${security.jwt.expiration_time}")
     private Long expiration;
 
-    private SecretKey getSigninKey(){
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    // built once on first use instead of on every call, both are thread safe
+    private final SingletonSupplier<SecretKey> signingKey = SingletonSupplier.of(() -> Keys.hmacShaKeyFor(secret.getBytes()));
+    private final SingletonSupplier<JwtParser> parser = SingletonSupplier.of(() -> Jwts.parser()
+            .verifyWith(signingKey.obtain())
+            .build());
+
+    // tokens that already passed the signature check, each one leaves the cache at its own exp
+    private final Cache<KeyDigest, VerifiedToken> verifiedTokens;
+
+    // built once, looking a timer up by tags on every request costs more than recording
+    private final Timer verifyCacheHit;
+    private final Timer verifyValid;
+    private final Timer verifyInvalid;
+
+    public JwtService(@Value("${security.jwt.verified-cache.max-size}") long maxCachedTokens,
+                      MeterRegistry meterRegistry){
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxCachedTokens)
+                .expireAfter(new Expiry<KeyDigest, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(KeyDigest key, VerifiedToken token, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(KeyDigest key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(KeyDigest key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "verified_tokens");
+        Gauge.builder("security.jwt.verified_cache.hit_ratio", verifiedTokens, cache -> cache.stats().hitRate())
+                .description("Share of token checks answered without parsing the token")
+                .register(meterRegistry);
+
+        this.verifyCacheHit = verifyTimer(meterRegistry, "hit", "valid");
+        this.verifyValid = verifyTimer(meterRegistry, "miss", "valid");
+        this.verifyInvalid = verifyTimer(meterRegistry, "miss", "invalid");
+    }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String cache, String result){
+        return Timer.builder("security.jwt.verify")
+                .description("Time to check a bearer token")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     public String generateToken(String clientId){
@@ -28,18 +95,40 @@ public class JwtService {
 
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString()) // jti, what a single token is revoked by
                 .subject(clientId)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigninKey())
+                .signWith(signingKey.obtain())
                 .compact();
     }
 
+    // checks signature and exp once, a client reusing its token gets it from the cache after that
+    public Optional<VerifiedToken> verify(String token){
+        long start = System.nanoTime();
+        KeyDigest digest = KeyDigest.of(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            verifyCacheHit.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Optional.of(cached);
+        }
+
+        try {
+            Claims claims = extractAllClaims(token); // throws if the signature is wrong or the token is expired
+            VerifiedToken verified = VerifiedToken.of(claims.getSubject(), claims.getExpiration().toInstant(), claims.getId(),
+                    claims.getIssuedAt() == null ? Instant.EPOCH : claims.getIssuedAt().toInstant());
+            verifiedTokens.put(digest, verified);
+            verifyValid.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Optional.of(verified);
+        } catch (JwtException | IllegalArgumentException e) {
+            verifyInvalid.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Optional.empty();
+        }
+    }
+
     public Claims extractAllClaims(String token){
-        return Jwts.parser()
-                .verifyWith(getSigninKey())
-                .build()
-                .parseEncryptedClaims(token)
+        return parser.obtain()
+                .parseSignedClaims(token)
                 .getPayload();
     }
 
@@ -48,11 +137,6 @@ public class JwtService {
     }
 
     public boolean isTokenValid(String token){
-        try{
-            Claims claims = extractAllClaims(token);
-            return !claims.getExpiration().before(new Date());
-        } catch (Exception e) {
-            return false;
-        }
+        return verify(token).isPresent();
     }
 }
@@ -0,0 +1,236 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.security.ClientCache.ClientSnapshot;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+// Failed logins and lockouts per client, in memory and written to the client table write-behind.
+// A failure is a CAS on the client's pending changes, no lock and no DB write on the request path.
+// Every flush-interval the changes since the last flush go out as one UPDATE per client, however many
+// attempts there were. Failures are written as increments so the nodes add up instead of overwriting
+// each other, and the row read back becomes this node's view, so a lockout reached on another node is
+// seen here within a flush interval. A crash loses at most one interval of failures, lockouts already
+// written stay.
+@Component
+@Slf4j
+public class LoginAttemptTracker {
+
+    // nothing to write; RETIRED = taken out of the map by a flush, whoever still holds it starts over
+    private static final Pending EMPTY = new Pending(0, false, 0, null);
+    private static final Pending RETIRED = new Pending(-1, false, 0, null);
+
+    private static final String INCREMENT = """
+            UPDATE client
+            SET locked_until = CASE WHEN (? = 1 OR failed_attempts + ? >= ?) AND (locked_until IS NULL OR locked_until < ?) THEN ?
+                                    ELSE locked_until END,
+                failed_attempts = failed_attempts + ?
+            WHERE client_id = ?""";
+    private static final String RESET = "UPDATE client SET locked_until = ?, failed_attempts = ? WHERE client_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ClientCache clientCache;
+    private final SecurityMetrics securityMetrics;
+    private final int maxAttempts;
+    private final long lockoutSeconds;
+    private final Map<String, AtomicReference<Pending>> pending = new ConcurrentHashMap<>();
+
+    public LoginAttemptTracker(JdbcTemplate jdbcTemplate,
+                               ClientCache clientCache,
+                               SecurityMetrics securityMetrics,
+                               @Value("${security.client-credentials.max-number-of-attempts}") int maxAttempts,
+                               @Value("${security.client-credentials.lockout-duration-time}") long lockoutSeconds){
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.clientCache = clientCache;
+        this.securityMetrics = securityMetrics;
+        this.maxAttempts = maxAttempts;
+        this.lockoutSeconds = lockoutSeconds;
+    }
+
+    public boolean isLocked(ClientSnapshot client){
+        LocalDateTime lockedUntil = lockedUntil(client, current(client.clientId()));
+        return lockedUntil != null && lockedUntil.isAfter(LocalDateTime.now());
+    }
+
+    public void failed(ClientSnapshot client){
+        Pending[] change = update(client.clientId(), p -> {
+            Pending next = p.withFailure();
+            if (failures(client, next) >= maxAttempts && !lockedNow(client, p)) {
+                next = next.withLock(LocalDateTime.now().plusSeconds(lockoutSeconds));
+            }
+            return next;
+        });
+        if (change[1].lockedUntil() != null && change[1].lockedUntil() != change[0].lockedUntil()) {
+            securityMetrics.lockedOut();
+            log.warn("Client is locked due to many failed attempts from user {}", client.clientId());
+        }
+    }
+
+    // back to 0, only written when there was something to clear
+    public void succeeded(ClientSnapshot client){
+        Pending p = current(client.clientId());
+        if (failures(client, p) == 0 && lockedUntil(client, p) == null) {
+            return;
+        }
+        update(client.clientId(), Pending::afterSuccess);
+    }
+
+    @Scheduled(fixedDelayString = "${security.client-credentials.state.flush-interval}")
+    public void flush(){
+        try {
+            write();
+        } catch (RuntimeException e) {
+            // the changes are still pending, they go out with the next flush
+            log.error("Could not write login attempts to the client table", e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown(){
+        flush();
+    }
+
+    private void write(){
+        List<String> clientIds = new ArrayList<>();
+        List<Pending> flushed = new ArrayList<>();
+        List<Object[]> increments = new ArrayList<>();
+        List<Object[]> resets = new ArrayList<>();
+        LocalDateTime lockIfReached = LocalDateTime.now().plusSeconds(lockoutSeconds);
+
+        pending.forEach((clientId, ref) -> {
+            Pending p = ref.get();
+            if (p == EMPTY) {
+                if (ref.compareAndSet(EMPTY, RETIRED)) {
+                    pending.remove(clientId, ref);
+                }
+                return;
+            }
+            if (p.isEmpty()) {
+                return;
+            }
+            clientIds.add(clientId);
+            flushed.add(p);
+            if (p.reset()) {
+                resets.add(new Object[]{timestamp(p.lockedUntil()), p.failures(), clientId});
+            } else {
+                LocalDateTime lock = p.lockedUntil() != null ? p.lockedUntil() : lockIfReached;
+                increments.add(new Object[]{p.lockedUntil() != null ? 1 : 0, p.failures(), maxAttempts,
+                        timestamp(lock), timestamp(lock), p.failures(), clientId});
+            }
+        });
+        if (clientIds.isEmpty()) {
+            return;
+        }
+
+        if (!resets.isEmpty()) {
+            jdbcTemplate.batchUpdate(RESET, resets);
+        }
+        if (!increments.isEmpty()) {
+            jdbcTemplate.batchUpdate(INCREMENT, increments);
+        }
+
+        // the totals of every node, written into the cache before the pending part is taken off,
+        // so for a moment the count is too high rather than too low
+        namedJdbcTemplate.query("SELECT client_id, failed_attempts, locked_until FROM client WHERE client_id IN (:clientIds)",
+                new MapSqlParameterSource("clientIds", clientIds),
+                rs -> {
+                    Timestamp lockedUntil = rs.getTimestamp(3);
+                    clientCache.updateAttempts(rs.getString(1), rs.getInt(2), lockedUntil == null ? null : lockedUntil.toLocalDateTime());
+                });
+        for (int i = 0; i < clientIds.size(); i++) {
+            Pending written = flushed.get(i);
+            update(clientIds.get(i), p -> p.minus(written));
+        }
+    }
+
+    private Pending current(String clientId){
+        AtomicReference<Pending> ref = pending.get(clientId);
+        Pending p = ref == null ? EMPTY : ref.get();
+        return p == RETIRED ? EMPTY : p;
+    }
+
+    // [before, after]
+    private Pending[] update(String clientId, UnaryOperator<Pending> change){
+        while (true) {
+            AtomicReference<Pending> ref = pending.computeIfAbsent(clientId, id -> new AtomicReference<>(EMPTY));
+            Pending before = ref.get();
+            if (before == RETIRED) {
+                continue; // a flush just dropped this one, the next computeIfAbsent makes a new one
+            }
+            Pending after = change.apply(before);
+            if (ref.compareAndSet(before, after)) {
+                return new Pending[]{before, after};
+            }
+        }
+    }
+
+    private int failures(ClientSnapshot client, Pending p){
+        return (p.reset() ? 0 : client.failedAttempts()) + p.failures();
+    }
+
+    private LocalDateTime lockedUntil(ClientSnapshot client, Pending p){
+        LocalDateTime stored = p.reset() ? null : client.lockedUntil();
+        if (stored == null || (p.lockedUntil() != null && p.lockedUntil().isAfter(stored))) {
+            return p.lockedUntil();
+        }
+        return stored;
+    }
+
+    private boolean lockedNow(ClientSnapshot client, Pending p){
+        LocalDateTime lockedUntil = lockedUntil(client, p);
+        return lockedUntil != null && lockedUntil.isAfter(LocalDateTime.now());
+    }
+
+    private static SqlParameterValue timestamp(LocalDateTime time){
+        return new SqlParameterValue(Types.TIMESTAMP, time == null ? null : Timestamp.valueOf(time));
+    }
+
+    // what changed since the last flush. generation goes up on every reset, so a flush that finishes
+    // after a newer reset doesn't take anything off it
+    private record Pending(long generation, boolean reset, int failures, LocalDateTime lockedUntil) {
+
+        Pending withFailure(){
+            return new Pending(generation, reset, failures + 1, lockedUntil);
+        }
+
+        Pending withLock(LocalDateTime until){
+            return new Pending(generation, reset, failures, until);
+        }
+
+        Pending afterSuccess(){
+            return new Pending(generation + 1, true, 0, null);
+        }
+
+        Pending minus(Pending written){
+            if (written.generation != generation) {
+                return this;
+            }
+            Pending rest = new Pending(generation, false, failures - written.failures,
+                    Objects.equals(lockedUntil, written.lockedUntil) ? null : lockedUntil);
+            return rest.isEmpty() ? EMPTY : rest;
+        }
+
+        boolean isEmpty(){
+            return !reset && failures == 0 && lockedUntil == null;
+        }
+    }
+}
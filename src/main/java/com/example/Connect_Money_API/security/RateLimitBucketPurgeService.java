@@ -0,0 +1,72 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.repository.RateLimitBucketRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Deletes the rate_limit_buckets rows nobody used for as long as a bucket takes to refill from empty.
+// Such a bucket is full again, the same as a new one, so the next request of that key just creates the
+// row again. Without this every IP that ever called stays in the table.
+// Chunks with a pause in between like IdempotencyKeyPurgeService, every node may run it, a row that's
+// already gone is simply not deleted twice.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "security.rate-limit.mode", havingValue = "distributed")
+public class RateLimitBucketPurgeService {
+
+    private final RateLimitBucketRepository bucketRepository;
+    private final Duration idle;
+    private final int chunkSize;
+    private final long chunkPauseMillis;
+
+    public RateLimitBucketPurgeService(RateLimitBucketRepository bucketRepository,
+                                       @Value("${security.rate-limit.capacity}") long capacity,
+                                       @Value("${security.rate-limit.refill-tokens}") long refillTokens,
+                                       @Value("${security.rate-limit.refill-duration}") long refillSeconds,
+                                       @Value("${security.rate-limit.distributed.purge.chunk-size}") int chunkSize,
+                                       @Value("${security.rate-limit.distributed.purge.chunk-pause}") long chunkPauseMillis){
+        this.bucketRepository = bucketRepository;
+        // refills come in whole intervals
+        this.idle = Duration.ofSeconds((capacity + refillTokens - 1) / refillTokens * refillSeconds);
+        this.chunkSize = chunkSize;
+        this.chunkPauseMillis = chunkPauseMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${security.rate-limit.distributed.purge.interval}")
+    public void purgeIdle(){
+        try {
+            purge(LocalDateTime.now().minus(idle));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Rate limit bucket purge failed, trying again next run", e);
+        }
+    }
+
+    // number of buckets deleted
+    public long purge(LocalDateTime before) throws InterruptedException {
+        long deleted = 0;
+        while (true) {
+            List<Long> ids = bucketRepository.findIdleIds(before, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            deleted += bucketRepository.deleteIdle(ids, before);
+            if (ids.size() < chunkSize) {
+                break;
+            }
+            Thread.sleep(chunkPauseMillis);
+        }
+        if (deleted > 0) {
+            log.info("Purged {} rate limit buckets idle since {}", deleted, before);
+        }
+        return deleted;
+    }
+}
@@ -1,55 +1,60 @@
 package com.example.Connect_Money_API.security;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class RateLimitFilter extends OncePerRequestFilter {
 
-    @Value("${security.rate-limit.capacity}")
-    private Long capacity;
-    @Value("${security.rate-limit.refill-tokens}")
-    private Long refillTokens;
-    @Value("${security.rate-limit.refill-duration}")
-    private Long refillDuration;
+    // CompactBucketStore per node, or DistributedRateLimiter shared by all of them (security.rate-limit.mode)
+    private final RateLimiter rateLimiter;
+    private final SecurityMetrics securityMetrics;
 
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
-
-    private Bucket createNewBucket(){
-        Bandwidth limit = Bandwidth.classic(capacity, Refill
-                .intervally(refillTokens, Duration.ofSeconds(refillDuration)));
-        return Bucket.builder().addLimit(limit).build();
-    }
+    @Value("${security.rate-limit.key-by:ip}")
+    private String keyBy = "ip";
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        String clientIp = getClientIp(request);
-        Bucket bucket = cache.computeIfAbsent(clientIp, ip -> createNewBucket());
+        String key = getKey(request);
 
-        if (bucket.tryConsume(1)){
+        if (rateLimiter.tryConsume(key)){
             filterChain.doFilter(request, response);
         }else {
-            log.warn("Rate limit exceeded for this IP Address: {}", clientIp);
+            log.warn("Rate limit exceeded for: {}", key);
+            securityMetrics.rateLimited(request.getRequestURI());
             response.setStatus(429);
             response.getWriter().write("{\"error\":\"Too many requests\"}");
         }
     }
 
+    public boolean isKeyedByClientId(){
+        return "client-id".equals(keyBy);
+    }
+
+    // with key-by client-id this runs after the AuthFilter, calls without a valid token still go by IP
+    private String getKey(HttpServletRequest request){
+        if (isKeyedByClientId()) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.isAuthenticated()) {
+                return "client:" + auth.getName();
+            }
+        }
+        return getClientIp(request);
+    }
+
     private String getClientIp(HttpServletRequest request){
         String header = request.getHeader("X-Forwarded-For");
         if(header == null){
@@ -0,0 +1,6 @@
+package com.example.Connect_Money_API.security;
+
+// takes one token for the key (client IP or client id), false means the request should get a 429
+public interface RateLimiter {
+    boolean tryConsume(String key);
+}
@@ -3,6 +3,8 @@ package com.example.Connect_Money_API.security;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -28,6 +30,7 @@ import java.util.List;
 public class SecurityConfig {
     private final AuthFilter authFilter;
     private final RateLimitFilter rateLimitFilter;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
 
 
     @Bean
@@ -37,17 +40,34 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth.
-                                requestMatchers("/v1/protocol/openid-connect/token").permitAll()
+                                // the export finishes on an async dispatch, the request was checked already on the way in
+                                dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                                .requestMatchers("/v1/protocol/openid-connect/token",
+                                        "/v1/protocol/openid-connect/revoke",
+                                        "/v1/protocol/openid-connect/revoke-all").permitAll()
+                                // only matches on management.server.port, the same chain runs there
+                                .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll()
                                 .requestMatchers("/v1/**").authenticated()
                                 .anyRequest().denyAll()
-                ).addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class)
-                .addFilterBefore(authFilter, UsernamePasswordAuthenticationFilter.class)
+                )
                 .headers(headers -> headers
                         .contentSecurityPolicy(csp -> csp.policyDirectives("default-src 'self'"))
                         .frameOptions(frame -> frame.deny())
                         .xssProtection(xss -> xss.headerValue(XXssProtectionHeaderWriter.HeaderValue.ENABLED))
                         .contentTypeOptions(contentType -> {}));
 
+        // sheds before anything else is spent on the request
+        httpSecurity.addFilterBefore(concurrencyLimitFilter, UsernamePasswordAuthenticationFilter.class);
+
+        // to limit per client id the token has to be checked first
+        if (rateLimitFilter.isKeyedByClientId()) {
+            httpSecurity.addFilterBefore(authFilter, UsernamePasswordAuthenticationFilter.class)
+                    .addFilterAfter(rateLimitFilter, AuthFilter.class);
+        } else {
+            httpSecurity.addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class)
+                    .addFilterBefore(authFilter, UsernamePasswordAuthenticationFilter.class);
+        }
+
         return httpSecurity.build();
     }
 
@@ -0,0 +1,96 @@
+package com.example.Connect_Money_API.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.List;
+
+// Meters of the auth and rate limit path, built once so a request only does the recording.
+// Tags are a fixed set of values: never an IP, a client id or a path with an id in it.
+@Component
+public class SecurityMetrics {
+
+    // the routes we have, anything else is tagged "other" so scanners can't blow up the tag values
+    private static final List<PathPattern> ROUTES = List.of(
+            "/v1/protocol/openid-connect/token",
+            "/v1/protocol/openid-connect/revoke",
+            "/v1/protocol/openid-connect/revoke-all",
+            "/v1/transactions",
+            "/v1/transactions/batch",
+            "/v1/transactions/summary",
+            "/v1/transactions/export",
+            "/v1/transactions/ingestion/{idempotencyKey}").stream()
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
+
+    private final MeterRegistry meterRegistry;
+    private final Timer authSuccess;
+    private final Timer authFailure;
+    private final Counter lockouts;
+    private final Counter revokedToken;
+    private final Counter revokedBefore;
+    private final Counter inactiveClient;
+    private final Counter revocationHit;
+    private final Counter revocationFalsePositive;
+
+    public SecurityMetrics(MeterRegistry meterRegistry){
+        this.meterRegistry = meterRegistry;
+        this.authSuccess = Timer.builder("security.auth.authenticate").tag("outcome", "success").register(meterRegistry);
+        this.authFailure = Timer.builder("security.auth.authenticate").tag("outcome", "failure").register(meterRegistry);
+        this.lockouts = Counter.builder("security.auth.lockouts").register(meterRegistry);
+        this.revokedToken = Counter.builder("security.jwt.rejected").tag("reason", "revoked").register(meterRegistry);
+        this.revokedBefore = Counter.builder("security.jwt.rejected").tag("reason", "revoked_before").register(meterRegistry);
+        this.inactiveClient = Counter.builder("security.jwt.rejected").tag("reason", "inactive_client").register(meterRegistry);
+        // only Bloom filter positives get here, the rest never touch the table
+        this.revocationHit = Counter.builder("security.jwt.revocation.lookups").tag("result", "revoked").register(meterRegistry);
+        this.revocationFalsePositive = Counter.builder("security.jwt.revocation.lookups").tag("result", "false_positive").register(meterRegistry);
+    }
+
+    public Timer authTimer(boolean success){
+        return success ? authSuccess : authFailure;
+    }
+
+    public void lockedOut(){
+        lockouts.increment();
+    }
+
+    public void tokenRevoked(){
+        revokedToken.increment();
+    }
+
+    public void tokenRevokedBefore(){
+        revokedBefore.increment();
+    }
+
+    public void clientInactive(){
+        inactiveClient.increment();
+    }
+
+    public void revocationLookup(boolean revoked){
+        (revoked ? revocationHit : revocationFalsePositive).increment();
+    }
+
+    public void rateLimited(String path){
+        meterRegistry.counter("security.rate_limit.rejected", "route", route(path)).increment();
+    }
+
+    // the distributed limiter couldn't reach the DB, tagged with what it did instead (local, allow, reject)
+    public void rateLimitStoreFailed(String fallback){
+        meterRegistry.counter("security.rate_limit.store_failures", "fallback", fallback).increment();
+    }
+
+    static String route(String path){
+        PathContainer container = PathContainer.parsePath(path);
+        for (PathPattern route : ROUTES) {
+            if (route.matches(container)) {
+                return route.getPatternString();
+            }
+        }
+        return "other";
+    }
+}
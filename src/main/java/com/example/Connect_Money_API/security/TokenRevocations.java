@@ -0,0 +1,160 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.repository.ClientRepository;
+import com.example.Connect_Money_API.repository.RevokedTokenRepository;
+import com.example.Connect_Money_API.security.ClientCache.ClientSnapshot;
+import com.example.Connect_Money_API.util.BloomFilter;
+import com.example.Connect_Money_API.util.KeyDigest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+// What AuthFilter asks on every request after the signature check: is this token still good.
+// - the client has to exist and be active, and the token has to be issued after the client's
+//   tokens_revoked_before. Both come from ClientCache, no query on a hit.
+// - single revoked tokens (by jti) are in a Bloom filter, so a token that isn't revoked, nearly all of them,
+//   is answered in memory. Only a "maybe" is looked up in revoked_tokens, and the answer is cached.
+// The filter gets the rows revoked since the last refresh every refresh-interval and is rebuilt from the
+// table every rebuild-interval, which drops the expired ones. A revocation made on another node takes up to
+// one refresh interval to show up here, the client watermark up to one ClientCache reload.
+@Component
+@Slf4j
+public class TokenRevocations {
+
+    // rows committed a bit after the last refresh read them can have an older revoked_at, read them again
+    private static final Duration OVERLAP = Duration.ofSeconds(10);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final ClientRepository clientRepository;
+    private final ClientCache clientCache;
+    private final SecurityMetrics securityMetrics;
+    private final long expectedTokens;
+    private final double falsePositiveRate;
+    private final long rebuildIntervalNanos;
+    // answers of the table for Bloom filter positives, true or false
+    private final Cache<KeyDigest, Boolean> lookups;
+
+    private volatile BloomFilter revoked;
+    private LocalDateTime refreshedFrom; // null = rebuild on the next refresh
+    private long rebuiltAt;
+
+    public TokenRevocations(RevokedTokenRepository revokedTokenRepository,
+                            ClientRepository clientRepository,
+                            ClientCache clientCache,
+                            SecurityMetrics securityMetrics,
+                            @Value("${security.jwt.revocation.expected-tokens}") long expectedTokens,
+                            @Value("${security.jwt.revocation.false-positive-rate}") double falsePositiveRate,
+                            @Value("${security.jwt.revocation.rebuild-interval}") long rebuildIntervalMillis,
+                            @Value("${security.jwt.revocation.lookup-cache.max-size}") long maxLookups,
+                            @Value("${security.jwt.expiration_time}") long tokenExpirationMillis){
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.clientRepository = clientRepository;
+        this.clientCache = clientCache;
+        this.securityMetrics = securityMetrics;
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildIntervalNanos = Duration.ofMillis(rebuildIntervalMillis).toNanos();
+        this.lookups = Caffeine.newBuilder()
+                .maximumSize(maxLookups)
+                .expireAfterWrite(Duration.ofMillis(tokenExpirationMillis)) // no token lives longer
+                .build();
+        this.revoked = BloomFilter.create(expectedTokens, falsePositiveRate);
+    }
+
+    public boolean isRevoked(VerifiedToken token){
+        Optional<ClientSnapshot> client = clientCache.get(token.clientId());
+        if (client.isEmpty() || !client.get().active()) {
+            securityMetrics.clientInactive();
+            return true;
+        }
+        if (issuedBeforeWatermark(token, client.get().tokensRevokedBefore())) {
+            securityMetrics.tokenRevokedBefore();
+            return true;
+        }
+        if (token.tokenKey() == null || !revoked.mightContain(token.tokenKey())) {
+            return false;
+        }
+
+        boolean[] looked = {false};
+        boolean isRevoked = lookups.get(token.tokenKey(), key -> {
+            looked[0] = true;
+            return revokedTokenRepository.isRevoked(token.tokenId());
+        });
+        if (looked[0]) {
+            securityMetrics.revocationLookup(isRevoked);
+        }
+        if (isRevoked) {
+            securityMetrics.tokenRevoked();
+        }
+        return isRevoked;
+    }
+
+    public void revoke(VerifiedToken token){
+        if (token.tokenId() == null) {
+            return; // issued before tokens had a jti, only revoke-all reaches those
+        }
+        revokedTokenRepository.insert(token.tokenId(), token.clientId(),
+                LocalDateTime.ofInstant(token.expiresAt(), ZoneId.systemDefault()), LocalDateTime.now());
+        revoked.add(token.tokenKey());
+        lookups.invalidate(token.tokenKey());
+        log.info("Token {} of the user {} is revoked", token.tokenId(), token.clientId());
+    }
+
+    // tokens issued in the same second as `before` are revoked too, iat only has seconds
+    public void revokeAllBefore(String clientId, LocalDateTime before){
+        clientRepository.revokeTokensIssuedBefore(clientId, before);
+        clientCache.invalidate(clientId);
+        log.info("Tokens of the user {} issued before {} are revoked", clientId, before);
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.revocation.refresh-interval}")
+    public synchronized void refresh(){
+        LocalDateTime start = LocalDateTime.now();
+        try {
+            if (refreshedFrom == null || System.nanoTime() - rebuiltAt > rebuildIntervalNanos) {
+                rebuild(start);
+            } else {
+                for (String tokenId : revokedTokenRepository.findRevokedSince(refreshedFrom.minus(OVERLAP))) {
+                    KeyDigest key = KeyDigest.of(tokenId);
+                    revoked.add(key);
+                    lookups.invalidate(key); // may hold a "not revoked" from before
+                }
+            }
+            refreshedFrom = start;
+        } catch (RuntimeException e) {
+            // the filter keeps what it has, the next refresh reads from the same point
+            log.error("Could not refresh the revoked tokens", e);
+        }
+    }
+
+    private void rebuild(LocalDateTime now){
+        revokedTokenRepository.deleteExpired(now);
+        List<String> tokenIds = revokedTokenRepository.findUnexpired(now);
+        // room to grow until the next rebuild without the false positives going up
+        BloomFilter next = BloomFilter.create(Math.max(expectedTokens, tokenIds.size() * 2L), falsePositiveRate);
+        tokenIds.forEach(tokenId -> next.add(KeyDigest.of(tokenId)));
+        revoked = next;
+        lookups.invalidateAll();
+        rebuiltAt = System.nanoTime();
+        log.info("Revoked tokens filter rebuilt with {} tokens", tokenIds.size());
+    }
+
+    private static boolean issuedBeforeWatermark(VerifiedToken token, LocalDateTime watermark){
+        if (watermark == null) {
+            return false;
+        }
+        Instant before = watermark.atZone(ZoneId.systemDefault()).toInstant().truncatedTo(ChronoUnit.SECONDS);
+        return !token.issuedAt().isAfter(before);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.util.KeyDigest;
+
+import java.time.Instant;
+
+// what we need from a token after its signature and exp are checked.
+// tokenId is the jti (null on tokens issued before there was one), tokenKey its digest for the revocation filter
+public record VerifiedToken(String clientId, Instant expiresAt, String tokenId, Instant issuedAt, KeyDigest tokenKey) {
+
+    static VerifiedToken of(String clientId, Instant expiresAt, String tokenId, Instant issuedAt){
+        return new VerifiedToken(clientId, expiresAt, tokenId, issuedAt, tokenId == null ? null : KeyDigest.of(tokenId));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.Connect_Money_API.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter over KeyDigests: "no" is always right, "maybe" is wrong about falsePositiveRate of the time
+// while it holds at most expectedEntries. The digest is already a hash, its two halves give the k bit
+// positions (Kirsch-Mitzenmacher), so a lookup is k array reads and no hashing. Lock free, it can be read
+// while another thread adds to it.
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    private BloomFilter(long bits, int hashes){
+        this.words = new AtomicLongArray(Math.toIntExact(bits / 64));
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    public static BloomFilter create(long expectedEntries, double falsePositiveRate){
+        long entries = Math.max(1, expectedEntries);
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (ln2 * ln2));
+        bits = Math.max(64, (bits + 63) / 64 * 64);
+        int hashes = (int) Math.max(1, Math.round((double) bits / entries * ln2));
+        return new BloomFilter(bits, hashes);
+    }
+
+    public void add(KeyDigest key){
+        for (int i = 0; i < hashes; i++) {
+            long bit = bit(key, i);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, add) -> current | add);
+            }
+        }
+    }
+
+    public boolean mightContain(KeyDigest key){
+        for (int i = 0; i < hashes; i++) {
+            long bit = bit(key, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long bit(KeyDigest key, int i){
+        return Math.floorMod(key.high() + i * key.low(), bits);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.Connect_Money_API.util;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Locale;
+
+// MySQL only SQL (partitions, streaming fetch size, online ALTERs) is chosen here, the tests run on H2 in MySQL mode
+public final class DatabaseVendor {
+
+    private DatabaseVendor(){
+    }
+
+    // Connector/J says "MySQL". Locale.ROOT so the lower casing doesn't depend on the JVM's default locale (Turkish I)
+    public static boolean isMySql(DatabaseMetaData metaData) throws SQLException {
+        return metaData.getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.Connect_Money_API.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// 128 bits of SHA-256 packed in two longs, used as a cache key instead of keeping the
+// whole string around (an UUID string is ~4x bigger than this on the heap).
+public record KeyDigest(long high, long low) {
+
+    public static KeyDigest of(String value){
+        ByteBuffer hash = ByteBuffer.wrap(sha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+        return new KeyDigest(hash.getLong(), hash.getLong());
+    }
+
+    private static MessageDigest sha256(){
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 isn't available", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.Connect_Money_API.util;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+// Amounts are stored as a whole number of the currency's minor unit: cents for USD, yen for JPY, fils for KWD.
+// The number of decimals comes from ISO 4217, codes Java doesn't know (or without minor units, like XAU) use 2.
+public final class MinorUnits {
+
+    private static final int DEFAULT_EXPONENT = 2;
+
+    private MinorUnits(){
+    }
+
+    public static int exponent(String currency){
+        try {
+            int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+            return digits < 0 ? DEFAULT_EXPONENT : digits;
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_EXPONENT;
+        }
+    }
+
+    // ArithmeticException if the amount has more decimals than the currency or doesn't fit in a long
+    public static long toMinor(BigDecimal amount, String currency){
+        return amount.movePointRight(exponent(currency)).longValueExact();
+    }
+
+    public static boolean fits(BigDecimal amount, String currency){
+        try {
+            toMinor(amount, currency);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    public static BigDecimal fromMinor(long minor, String currency){
+        return BigDecimal.valueOf(minor, exponent(currency));
+    }
+
+    // for SUM()s, which can go past a long
+    public static BigDecimal fromMinor(BigDecimal minor, String currency){
+        return minor.movePointLeft(exponent(currency));
+    }
+}
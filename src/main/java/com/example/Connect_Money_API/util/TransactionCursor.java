@@ -0,0 +1,33 @@
+package com.example.Connect_Money_API.util;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Optional;
+
+// Position after the last row of a page, (transaction_date, id) is the sort key of the listing.
+// Clients get it as an opaque base64 string and hand it back for the next page.
+public record TransactionCursor(LocalDate transactionDate, long id) {
+
+    public String encode(){
+        ByteBuffer buffer = ByteBuffer.allocate(16)
+                .putLong(transactionDate.toEpochDay())
+                .putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    // empty if somebody made up or cut the cursor
+    public static Optional<TransactionCursor> decode(String cursor){
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != 16) {
+                return Optional.empty();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return Optional.of(new TransactionCursor(LocalDate.ofEpochDay(buffer.getLong()), buffer.getLong()));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package db.migration;
+
+import com.example.Connect_Money_API.model.TransactionStatus;
+import com.example.Connect_Money_API.model.TransactionType;
+import com.example.Connect_Money_API.util.MinorUnits;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// What V13 and V14 share: filling the compact columns added by V12 from the old ones. Batches of ids, each one
+// its own statement and commit (the migrations run outside a transaction), so no long row locks and the replicas
+// get small events. A row that can't be converted keeps its zeros and is reported, nothing is guessed.
+@Slf4j
+final class CompactTransactionRows {
+
+    // transactions_exchange is MySQL only (V10)
+    static final List<String> TABLES = List.of("transactions", "transactions_archive", "transactions_exchange");
+
+    // amounts are > 0, so 0 is a marker too
+    static final String NOT_FILLED = "(type_code = 0 OR status_code = 0 OR currency_code = '' OR amount_minor = 0 OR client_ref = 0)";
+
+    private static final int BATCH_SIZE = 5000;
+    private static final long BATCH_PAUSE_MILLIS = 20;
+
+    private CompactTransactionRows(){
+    }
+
+    static List<String> existingTables(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        List<String> tables = new ArrayList<>();
+        for (String table : TABLES) {
+            try (ResultSet rs = metaData.getTables(connection.getCatalog(), connection.getSchema(), table, new String[]{"TABLE"})) {
+                while (rs.next()) {
+                    if (rs.getString("TABLE_NAME").equalsIgnoreCase(table)) {
+                        tables.add(table);
+                        break;
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+
+    // client names that only exist in transactions get an inactive client (empty secret, it can't get a token).
+    // A plain SELECT first, INSERT ... SELECT would lock every row it reads
+    static void addMissingClients(Connection connection, List<String> tables) throws SQLException {
+        List<String> missing = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            for (String table : tables) {
+                try (ResultSet rs = statement.executeQuery("SELECT DISTINCT t.client_id FROM " + table + " t"
+                        + " WHERE NOT EXISTS (SELECT 1 FROM client c WHERE c.client_id = t.client_id)")) {
+                    while (rs.next()) {
+                        if (!missing.contains(rs.getString(1))) {
+                            missing.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO client (client_id, client_secret, active, failed_attempts) VALUES (?, '', FALSE, 0)")) {
+            for (String clientId : missing) {
+                ps.setString(1, clientId);
+                ps.executeUpdate();
+            }
+        }
+        // those got AUTO_INCREMENT ids, the pooled generator starts after them (same as V4)
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE id_generators SET next_val = (SELECT MAX(id) FROM client) + 50"
+                    + " WHERE sequence_name = 'client' AND next_val < (SELECT MAX(id) FROM client) + 50");
+        }
+        log.warn("Added {} inactive clients for transactions without one: {}", missing.size(), missing);
+    }
+
+    // number of rows filled
+    static long backfill(Connection connection, String table) throws SQLException, InterruptedException {
+        long[] range = idRange(connection, table);
+        if (range == null) {
+            return 0;
+        }
+
+        String update = "UPDATE " + table + " t SET"
+                + " type_code = " + codes("t.type", Stream.of(TransactionType.values()).map(type -> new Code(type.name(), type.code())))
+                + ", status_code = " + codes("t.status", Stream.of(TransactionStatus.values()).map(status -> new Code(status.name(), status.code())))
+                + ", currency_code = CASE WHEN UPPER(t.currency) IN (" + quoted(knownCurrencies()) + ") THEN UPPER(t.currency) ELSE '' END"
+                + ", amount_minor = " + minorUnits()
+                + ", client_ref = COALESCE((SELECT c.id FROM client c WHERE c.client_id = t.client_id), 0)"
+                + " WHERE t.id >= ? AND t.id < ? AND " + NOT_FILLED;
+
+        long filled = 0;
+        long start = System.nanoTime();
+        try (PreparedStatement ps = connection.prepareStatement(update)) {
+            for (long from = range[0]; from <= range[1]; from += BATCH_SIZE) {
+                ps.setLong(1, from);
+                ps.setLong(2, from + BATCH_SIZE);
+                filled += ps.executeUpdate();
+                Thread.sleep(BATCH_PAUSE_MILLIS); // let the replicas and the buffer pool catch up
+            }
+        }
+        log.info("Filled the compact columns of {} rows of {} in {} s", filled, table, (System.nanoTime() - start) / 1_000_000_000);
+        return filled;
+    }
+
+    // rows that still have a zero after the backfill, with the values that couldn't be converted
+    static List<String> notFilled(Connection connection, String table) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT DISTINCT type, status, currency, amount, client_id FROM " + table
+                     + " WHERE " + NOT_FILLED)) {
+            while (rs.next()) {
+                rows.add(rs.getString(1) + "/" + rs.getString(2) + "/" + rs.getString(3) + "/" + rs.getString(4) + "/" + rs.getString(5));
+            }
+        }
+        return rows;
+    }
+
+    private static long[] idRange(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MIN(id), MAX(id) FROM " + table + " WHERE " + NOT_FILLED)) {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        }
+    }
+
+    // the names are compared upper case, MySQL's collation did that for them before
+    private static String codes(String column, Stream<Code> codes){
+        return codes.map(code -> " WHEN '" + code.name() + "' THEN " + code.code())
+                .collect(Collectors.joining("", "CASE UPPER(" + column + ")", " ELSE 0 END"));
+    }
+
+    // only currencies Java knows, an amount is only converted if it fits the currency's decimals exactly:
+    // 100.50 JPY or an unknown code stays at 0 and is reported instead of being rounded or given 2 decimals.
+    // DECIMAL(38,2) has no more than 2 decimals, so only currencies with fewer need the check
+    private static String minorUnits(){
+        Map<Integer, List<String>> byExponent = knownCurrencies().stream()
+                .collect(Collectors.groupingBy(MinorUnits::exponent, TreeMap::new, Collectors.toList()));
+        return byExponent.entrySet().stream()
+                .map(exponent -> " WHEN UPPER(t.currency) IN (" + quoted(exponent.getValue()) + ")"
+                        + (exponent.getKey() < 2 ? " AND t.amount = ROUND(t.amount, " + exponent.getKey() + ")" : "")
+                        + " THEN ROUND(t.amount * 1" + "0".repeat(exponent.getKey()) + ")")
+                .collect(Collectors.joining("", "CASE", " ELSE 0 END"));
+    }
+
+    private static List<String> knownCurrencies(){
+        return Currency.getAvailableCurrencies().stream()
+                .map(Currency::getCurrencyCode)
+                .sorted()
+                .toList();
+    }
+
+    private static String quoted(List<String> codes){
+        return codes.stream().map(code -> "'" + code + "'").collect(Collectors.joining(", "));
+    }
+
+    private record Code(String name, byte code) {
+    }
+}
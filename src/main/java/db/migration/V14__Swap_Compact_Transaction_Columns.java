@@ -0,0 +1,93 @@
+package db.migration;
+
+import com.example.Connect_Money_API.util.DatabaseVendor;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compact transaction rows (3/3), see V12. Fills what was written since V13, then drops the old columns and
+// renames the new ones into their place. On MySQL the index is built and the table rebuilt INPLACE with
+// LOCK=NONE, the renames only change metadata. Nodes on the old version have to be gone before this runs.
+public class V14__Swap_Compact_Transaction_Columns extends BaseJavaMigration {
+
+    private static final String[][] RENAMES = {
+            {"type_code", "type"},
+            {"status_code", "status"},
+            {"amount_minor", "amount"},
+            {"currency_code", "currency"},
+            {"client_ref", "client_id"}};
+
+    @Override
+    public boolean canExecuteInTransaction(){
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        List<String> tables = CompactTransactionRows.existingTables(connection);
+        CompactTransactionRows.addMissingClients(connection, tables);
+        for (String table : tables) {
+            CompactTransactionRows.backfill(connection, table);
+            List<String> notFilled = CompactTransactionRows.notFilled(connection, table);
+            if (!notFilled.isEmpty()) {
+                throw new FlywayException(table + " has rows that can't be converted (type/status/currency/amount/client): " + notFilled
+                        + ". Fix the old columns, the next run fills them");
+            }
+        }
+
+        boolean mysql = DatabaseVendor.isMySql(connection.getMetaData());
+        try (Statement statement = connection.createStatement()) {
+            for (String table : tables) {
+                for (String sql : mysql ? mysql(table) : h2(table)) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+
+    private static List<String> mysql(String table){
+        String index = clientIndex(table);
+        List<String> renames = new ArrayList<>();
+        List<String> defaults = new ArrayList<>();
+        for (String[] rename : RENAMES) {
+            renames.add("RENAME COLUMN " + rename[0] + " TO " + rename[1]);
+            defaults.add("ALTER COLUMN " + rename[1] + " DROP DEFAULT");
+        }
+        return List.of(
+                "ALTER TABLE " + table + " ADD INDEX " + index + "_new (" + clientIndexColumns(table) + "), ALGORITHM=INPLACE, LOCK=NONE",
+                "ALTER TABLE " + table + " DROP INDEX " + index + ", DROP COLUMN type, DROP COLUMN status, DROP COLUMN amount,"
+                        + " DROP COLUMN currency, DROP COLUMN client_id, ALGORITHM=INPLACE, LOCK=NONE",
+                "ALTER TABLE " + table + " " + String.join(", ", renames) + ", RENAME INDEX " + index + "_new TO " + index,
+                "ALTER TABLE " + table + " " + String.join(", ", defaults));
+    }
+
+    // H2 takes one change per ALTER, and index names are per schema
+    private static List<String> h2(String table){
+        String index = clientIndex(table);
+        List<String> sql = new ArrayList<>();
+        sql.add("CREATE INDEX " + index + "_new ON " + table + " (" + clientIndexColumns(table) + ")");
+        sql.add("DROP INDEX " + index);
+        sql.add("ALTER TABLE " + table + " DROP COLUMN type, status, amount, currency, client_id");
+        for (String[] rename : RENAMES) {
+            sql.add("ALTER TABLE " + table + " RENAME COLUMN " + rename[0] + " TO " + rename[1]);
+            sql.add("ALTER TABLE " + table + " ALTER COLUMN " + rename[1] + " DROP DEFAULT");
+        }
+        sql.add("ALTER INDEX " + index + "_new RENAME TO " + index);
+        return sql;
+    }
+
+    // the index with client_id in it, V7 and V9
+    private static String clientIndex(String table){
+        return table.equals("transactions_archive") ? "idx_archive_client_date" : "idx_client_date_id";
+    }
+
+    private static String clientIndexColumns(String table){
+        return table.equals("transactions_archive") ? "client_ref, transaction_date" : "client_ref, transaction_date, id";
+    }
+}
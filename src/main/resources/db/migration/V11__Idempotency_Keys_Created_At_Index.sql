@@ -0,0 +1,7 @@
+-- ===============================================
+-- Connect Money API - Idempotency key retention
+-- ===============================================
+
+-- IdempotencyKeyPurgeService deletes the oldest keys first, this lets it find them without a full scan.
+-- (V10 is MySQL only, see db/vendor/mysql.)
+ALTER TABLE idempotency_keys ADD INDEX idx_idempotency_created_at (created_at);
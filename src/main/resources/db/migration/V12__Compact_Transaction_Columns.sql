@@ -0,0 +1,28 @@
+-- ===============================================
+-- Connect Money API - Compact transaction rows (1/3)
+-- ===============================================
+
+-- type and status become TINYINT codes (TransactionType, TransactionStatus), currency CHAR(3), amount a BIGINT
+-- of minor units (MinorUnits) and client_id the BIGINT client.id instead of the name. Those five go from ~55 bytes
+-- to ~21 per row, and client_id is in every idx_client_date_id entry too, so more of them fit in the buffer pool.
+-- Done without a table copy: this step adds the new columns next to the old ones (NOT NULL with a default,
+-- instant on MySQL 8), V13 fills them in batches while the table stays in use, V14 catches up with the rows
+-- written meanwhile and swaps them in. To keep the old version serving during the backfill, migrate up to
+-- V13 first (spring.flyway.target=13), then roll out.
+
+-- 0 / '' mean not filled in yet, the codes start at 1
+ALTER TABLE transactions ADD COLUMN (
+    type_code TINYINT NOT NULL DEFAULT 0,
+    status_code TINYINT NOT NULL DEFAULT 0,
+    amount_minor BIGINT NOT NULL DEFAULT 0,
+    currency_code CHAR(3) NOT NULL DEFAULT '',
+    client_ref BIGINT NOT NULL DEFAULT 0
+);
+
+ALTER TABLE transactions_archive ADD COLUMN (
+    type_code TINYINT NOT NULL DEFAULT 0,
+    status_code TINYINT NOT NULL DEFAULT 0,
+    amount_minor BIGINT NOT NULL DEFAULT 0,
+    currency_code CHAR(3) NOT NULL DEFAULT '',
+    client_ref BIGINT NOT NULL DEFAULT 0
+);
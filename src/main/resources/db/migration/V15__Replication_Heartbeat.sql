@@ -0,0 +1,11 @@
+-- ===============================================
+-- Connect Money API - Replica lag
+-- ===============================================
+
+-- With database.replica.enabled every node writes its clock here on the primary and reads its own row
+-- back from the replica, how old that value is on the replica is the replication lag (ReplicaLagMonitor).
+-- Rows of nodes that are gone are deleted after a day.
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+    node VARCHAR(64) NOT NULL PRIMARY KEY,
+    beat_at BIGINT NOT NULL -- epoch milliseconds of the node that wrote it
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,17 @@
+-- ===============================================
+-- Connect Money API - Token revocation
+-- ===============================================
+
+-- Tokens revoked one by one, by their jti. TokenRevocations keeps the ids in a Bloom filter and reads the
+-- new ones by revoked_at, a row can go once the token it revokes has expired.
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    token_id VARCHAR(64) NOT NULL PRIMARY KEY,
+    client_id VARCHAR(255) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    revoked_at DATETIME(6) NOT NULL,
+    INDEX idx_revoked_tokens_revoked_at (revoked_at),
+    INDEX idx_revoked_tokens_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- every token of the client issued up to this time is revoked
+ALTER TABLE client ADD COLUMN tokens_revoked_before DATETIME(6) NULL;
@@ -0,0 +1,17 @@
+-- ===============================================
+-- Connect Money API - Global transaction id uniqueness
+-- ===============================================
+
+-- Table: transaction_ids
+-- The partitioned transactions table can only keep transaction_id unique per date (V10), this small
+-- unpartitioned table keeps it unique overall. TransactionService inserts the id here in the same DB
+-- transaction as the row, a second insert of the id fails on the primary key and the whole transaction
+-- rolls back. Ids stay here when their rows move to transactions_archive, so an archived id can't be reused.
+CREATE TABLE IF NOT EXISTS transaction_ids (
+    transaction_id VARCHAR(255) NOT NULL PRIMARY KEY
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO transaction_ids (transaction_id)
+SELECT transaction_id FROM transactions
+UNION
+SELECT transaction_id FROM transactions_archive;
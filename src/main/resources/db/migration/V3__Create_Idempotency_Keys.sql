@@ -0,0 +1,12 @@
+-- ===============================================
+-- Connect Money API - Idempotency Keys
+-- ===============================================
+
+-- Table: idempotency_keys (was only ever created by hibernate before)
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    idempotency_key VARCHAR(255) NOT NULL UNIQUE,
+    transaction_id VARCHAR(255) NOT NULL,
+    processed BIT(1) NOT NULL DEFAULT FALSE,
+    created_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
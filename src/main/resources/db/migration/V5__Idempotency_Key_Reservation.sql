@@ -0,0 +1,21 @@
+-- ===============================================
+-- Connect Money API - Idempotency key reservation
+-- ===============================================
+
+-- The key becomes the primary key so a single INSERT IGNORE can claim it, and the
+-- outcome of the first request is kept on the row so replays don't read transactions.
+CREATE TABLE idempotency_keys_v5 (
+    idempotency_key VARCHAR(255) NOT NULL PRIMARY KEY,
+    transaction_id VARCHAR(255) NOT NULL,
+    processed BIT(1) NOT NULL DEFAULT FALSE,
+    response_status INT NOT NULL DEFAULT 200,
+    created_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO idempotency_keys_v5 (idempotency_key, transaction_id, processed, response_status, created_at)
+SELECT idempotency_key, transaction_id, processed, 200, created_at FROM idempotency_keys;
+
+DROP TABLE idempotency_keys;
+ALTER TABLE idempotency_keys_v5 RENAME TO idempotency_keys;
+
+DELETE FROM id_generators WHERE sequence_name = 'idempotency_keys';
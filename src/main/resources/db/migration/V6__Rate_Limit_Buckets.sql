@@ -0,0 +1,13 @@
+-- ===============================================
+-- Connect Money API - Shared rate limit buckets
+-- ===============================================
+
+-- Table: rate_limit_buckets
+-- Only used with security.rate-limit.mode=distributed, the id is a hash of the client IP / client id
+-- and the state is bucket4j's serialized bucket.
+CREATE TABLE IF NOT EXISTS rate_limit_buckets (
+    id BIGINT NOT NULL PRIMARY KEY,
+    state BLOB NULL,
+    updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    INDEX idx_rate_limit_updated_at (updated_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,8 @@
+-- ===============================================
+-- Connect Money API - Transactions listing index
+-- ===============================================
+
+-- (client_id, transaction_date, id) is exactly the filter + sort of the listing, so a page is one
+-- range scan that starts at the cursor. The old client_id index is a prefix of it and goes away.
+ALTER TABLE transactions ADD INDEX idx_client_date_id (client_id, transaction_date, id);
+ALTER TABLE transactions DROP INDEX idx_clientId_txn;
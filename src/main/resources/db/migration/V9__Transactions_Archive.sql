@@ -0,0 +1,21 @@
+-- ===============================================
+-- Connect Money API - Transactions archive
+-- ===============================================
+
+-- Table: transactions_archive
+-- Rows older than transactions.partitioning.retention-months are moved here by TransactionArchiveService.
+-- Same columns as transactions but only the indexes an audit lookup needs, nothing here is on the hot path.
+CREATE TABLE IF NOT EXISTS transactions_archive (
+    id BIGINT NOT NULL PRIMARY KEY,
+    transaction_id VARCHAR(255) NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    amount DECIMAL(38,2) NOT NULL,
+    currency VARCHAR(255) NOT NULL,
+    card_uid VARCHAR(255) NOT NULL,
+    transaction_date DATE NOT NULL,
+    client_id VARCHAR(255) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    INDEX idx_archive_transaction_id (transaction_id),
+    INDEX idx_archive_client_date (client_id, transaction_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
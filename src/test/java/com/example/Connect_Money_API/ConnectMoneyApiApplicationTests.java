@@ -1,13 +1,30 @@
 package com.example.Connect_Money_API;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.ScheduledAnnotationBeanPostProcessor;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
+@ActiveProfiles("test")
 class ConnectMoneyApiApplicationTests {
 
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void rollupRebuildRunsWithoutWebServerOrScheduledJobs() {
+		ConfigurableApplicationContext context = ConnectMoneyApiApplication.rebuildRollups("--rebuild-rollups", "--spring.profiles.active=test");
+
+		assertThat(context).isNotInstanceOf(WebServerApplicationContext.class);
+		assertThat(context.getBeansOfType(ScheduledAnnotationBeanPostProcessor.class)).isEmpty();
+		assertThat(SpringApplication.exit(context)).isZero();
+	}
+
 }
@@ -0,0 +1,120 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.dto.TokenRequest;
+import com.example.Connect_Money_API.model.Client;
+import com.example.Connect_Money_API.repository.ClientRepository;
+import com.example.Connect_Money_API.security.LoginAttemptTracker;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// the flush only runs when a test calls it
+@SpringBootTest(properties = "security.client-credentials.state.flush-interval=3600000")
+@ActiveProfiles("test")
+class AuthServiceTests {
+
+	private static final String SECRET = "auth-test-secret";
+
+	@Autowired
+	private AuthService authService;
+
+	@Autowired
+	private LoginAttemptTracker loginAttemptTracker;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void locksAfterTooManyFailuresAndWritesThemInOneGo() {
+		String clientId = client();
+
+		for (int i = 0; i < 5; i++) {
+			assertThatThrownBy(() -> authService.authenticate(request(clientId, "wrong")))
+					.isInstanceOf(SecurityException.class)
+					.hasMessage("Invalid password");
+		}
+		assertThatThrownBy(() -> authService.authenticate(request(clientId, SECRET)))
+				.hasMessage("Account is locked for while");
+		assertThat(failedAttempts(clientId)).isZero(); // nothing written yet
+
+		loginAttemptTracker.flush();
+
+		assertThat(failedAttempts(clientId)).isEqualTo(5);
+		assertThat(lockedUntil(clientId)).isAfter(LocalDateTime.now());
+		assertThatThrownBy(() -> authService.authenticate(request(clientId, SECRET)))
+				.hasMessage("Account is locked for while");
+	}
+
+	@Test
+	void addsUpWithFailuresFromOtherNodes() {
+		String clientId = client();
+		assertThatThrownBy(() -> authService.authenticate(request(clientId, "wrong"))).hasMessage("Invalid password");
+
+		// 4 failures written by another node meanwhile
+		jdbcTemplate.update("UPDATE client SET failed_attempts = failed_attempts + 4 WHERE client_id = ?", clientId);
+		loginAttemptTracker.flush();
+
+		assertThat(failedAttempts(clientId)).isEqualTo(5);
+		assertThat(lockedUntil(clientId)).isAfter(LocalDateTime.now());
+		assertThatThrownBy(() -> authService.authenticate(request(clientId, SECRET)))
+				.hasMessage("Account is locked for while");
+	}
+
+	@Test
+	void successResetsTheFailures() {
+		String clientId = client();
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> authService.authenticate(request(clientId, "wrong"))).hasMessage("Invalid password");
+		}
+		loginAttemptTracker.flush();
+		assertThat(failedAttempts(clientId)).isEqualTo(3);
+
+		assertThat(authService.authenticate(request(clientId, SECRET)).getAccessToken()).isNotBlank();
+		loginAttemptTracker.flush();
+
+		assertThat(failedAttempts(clientId)).isZero();
+		assertThat(lockedUntil(clientId)).isNull();
+	}
+
+	private String client() {
+		String clientId = "auth-" + UUID.randomUUID();
+		clientRepository.save(Client.builder()
+				.clientId(clientId)
+				.clientSecret(passwordEncoder.encode(SECRET))
+				.active(true)
+				.failedAttempts(0)
+				.build());
+		return clientId;
+	}
+
+	private static TokenRequest request(String clientId, String secret) {
+		TokenRequest request = new TokenRequest();
+		request.setGrantType("Client_Credentials");
+		request.setClientId(clientId);
+		request.setClientSecret(secret);
+		return request;
+	}
+
+	private int failedAttempts(String clientId) {
+		return jdbcTemplate.queryForObject("SELECT failed_attempts FROM client WHERE client_id = ?", Integer.class, clientId);
+	}
+
+	private LocalDateTime lockedUntil(String clientId) {
+		return jdbcTemplate.queryForObject("SELECT locked_until FROM client WHERE client_id = ?", LocalDateTime.class, clientId);
+	}
+}
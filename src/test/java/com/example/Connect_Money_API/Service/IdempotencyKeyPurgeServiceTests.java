@@ -0,0 +1,56 @@
+package com.example.Connect_Money_API.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"transactions.idempotency-purge.chunk-size=2",
+		"transactions.idempotency-purge.chunk-pause=0"})
+@ActiveProfiles("test")
+class IdempotencyKeyPurgeServiceTests {
+
+	@Autowired
+	private IdempotencyKeyPurgeService purgeService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void deletesOnlyKeysOlderThanTheCutoffInChunks() throws InterruptedException {
+		// far in the past so the keys the other tests write now are left alone
+		String prefix = "purge-" + UUID.randomUUID();
+		for (int i = 0; i < 5; i++) {
+			insertKey(prefix + "-old-" + i, LocalDateTime.of(2000, 1, 1, 0, 0).plusMinutes(i));
+		}
+		insertKey(prefix + "-kept", LocalDateTime.of(2000, 1, 2, 0, 0));
+		double purgedBefore = meterRegistry.get("idempotency.keys.purged").counter().count();
+
+		long deleted = purgeService.purge(LocalDateTime.of(2000, 1, 1, 12, 0));
+
+		assertThat(deleted).isEqualTo(5);
+		assertThat(jdbcTemplate.queryForList("SELECT idempotency_key FROM idempotency_keys WHERE idempotency_key LIKE ?", String.class, prefix + "%"))
+				.containsExactly(prefix + "-kept");
+		assertThat(meterRegistry.get("idempotency.keys.purged").counter().count() - purgedBefore).isEqualTo(5);
+		assertThat(meterRegistry.get("idempotency.keys.rows").gauge().value())
+				.isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_keys", Double.class));
+		assertThat(purgeService.purge(LocalDateTime.of(2000, 1, 1, 12, 0))).isZero();
+	}
+
+	private void insertKey(String key, LocalDateTime createdAt) {
+		jdbcTemplate.update("INSERT INTO idempotency_keys (idempotency_key, transaction_id, processed, response_status, created_at) VALUES (?, ?, TRUE, 200, ?)",
+				key, key + "-txn", Timestamp.valueOf(createdAt));
+	}
+}
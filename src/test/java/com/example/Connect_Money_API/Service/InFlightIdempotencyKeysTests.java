@@ -0,0 +1,132 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.dto.TransactionResult;
+import com.example.Connect_Money_API.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InFlightIdempotencyKeysTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final AtomicInteger runs = new AtomicInteger();
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void duplicateWaitsForTheFirstAttemptAndReplaysItsResult() throws Exception {
+		InFlightIdempotencyKeys keys = keys(5000);
+		Future<TransactionResult> first = executor.submit(() -> keys.process("key-1", blocking(() -> created("txn-1"))));
+		awaitRunning();
+
+		AtomicReference<Thread> waiter = new AtomicReference<>();
+		Future<TransactionResult> retry = executor.submit(() -> {
+			waiter.set(Thread.currentThread());
+			return keys.process("key-1", blocking(() -> created("txn-1")));
+		});
+		awaitWaiting(waiter);
+		assertThat(keys.process("key-2", () -> created("txn-2")).isReplayed()).isFalse(); // other keys don't wait
+
+		release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS).isReplayed()).isFalse();
+		TransactionResult replayed = retry.get(5, TimeUnit.SECONDS);
+		assertThat(replayed.isReplayed()).isTrue();
+		assertThat(replayed.getTransactionId()).isEqualTo("txn-1");
+		assertThat(replayed.getStatus()).isEqualTo(200);
+		assertThat(runs).hasValue(1);
+		assertThat(keys.size()).isZero();
+		assertThat(registry.get("transactions.idempotent_replays").tag("path", "in_flight").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void duplicateGetsTheSameFailureAndTheKeyIsFreed() throws Exception {
+		InFlightIdempotencyKeys keys = keys(5000);
+		DataIntegrityViolationException failure = new DataIntegrityViolationException("duplicate transaction id");
+		Future<TransactionResult> first = executor.submit(() -> keys.process("key-1", blocking(() -> {
+			throw failure;
+		})));
+		awaitRunning();
+
+		AtomicReference<Thread> waiter = new AtomicReference<>();
+		Future<TransactionResult> retry = executor.submit(() -> {
+			waiter.set(Thread.currentThread());
+			return keys.process("key-1", () -> created("txn-1"));
+		});
+		awaitWaiting(waiter);
+		release.countDown();
+
+		assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCause(failure);
+		assertThatThrownBy(() -> retry.get(5, TimeUnit.SECONDS)).hasCause(failure);
+		assertThat(keys.size()).isZero();
+		assertThat(keys.process("key-1", () -> created("txn-1")).isReplayed()).isFalse(); // runs again
+	}
+
+	@Test
+	void waitingTooLongIsA503AndTheFirstAttemptStillFinishes() throws Exception {
+		InFlightIdempotencyKeys keys = keys(50);
+		Future<TransactionResult> first = executor.submit(() -> keys.process("key-1", blocking(() -> created("txn-1"))));
+		awaitRunning();
+
+		assertThatThrownBy(() -> keys.process("key-1", () -> created("txn-1")))
+				.isInstanceOf(ServiceBusyException.class)
+				.satisfies(e -> assertThat(((ServiceBusyException) e).getRetryAfterSeconds()).isEqualTo(1));
+		assertThat(keys.size()).isEqualTo(1);
+
+		release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS).isReplayed()).isFalse();
+		assertThat(keys.size()).isZero();
+		assertThat(runs).hasValue(1);
+	}
+
+	private InFlightIdempotencyKeys keys(long waitTimeoutMillis) {
+		return new InFlightIdempotencyKeys(new TransactionMetrics(registry), waitTimeoutMillis, 1);
+	}
+
+	// stands in for the transaction, it holds until the test lets it commit
+	private Supplier<TransactionResult> blocking(Supplier<TransactionResult> outcome) {
+		return () -> {
+			runs.incrementAndGet();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return outcome.get();
+		};
+	}
+
+	private void awaitRunning() throws InterruptedException {
+		while (runs.get() == 0) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static void awaitWaiting(AtomicReference<Thread> waiter) throws InterruptedException {
+		while (waiter.get() == null || waiter.get().getState() != Thread.State.TIMED_WAITING) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static TransactionResult created(String transactionId) {
+		return TransactionResult.builder().transactionId(transactionId).status(200).replayed(false).build();
+	}
+}
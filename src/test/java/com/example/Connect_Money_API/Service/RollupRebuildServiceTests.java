@@ -0,0 +1,112 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.TestClients;
+import com.example.Connect_Money_API.dto.BatchTransactionItem;
+import com.example.Connect_Money_API.dto.DailySummary;
+import com.example.Connect_Money_API.dto.TransactionFilter;
+import com.example.Connect_Money_API.dto.TransactionRequest;
+import com.example.Connect_Money_API.repository.ClientRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RollupRebuildServiceTests {
+
+	@Autowired
+	private TransactionService transactionService;
+
+	@Autowired
+	private TransactionQueryService transactionQueryService;
+
+	@Autowired
+	private RollupRebuildService rollupRebuildService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void singleAndBatchInsertsAddUpInTheSummary() {
+		String client = authenticate();
+
+		transactionService.transactionProcess(client + "-key-1", request(client + "-txn-1", "10.50", LocalDate.of(2025, 4, 1)));
+		transactionService.transactionProcess(client + "-key-1", request(client + "-txn-1", "10.50", LocalDate.of(2025, 4, 1))); // replay, not counted
+		transactionService.batchProcess(List.of(
+				item(client + "-key-2", request(client + "-txn-2", "2.25", LocalDate.of(2025, 4, 1))),
+				item(client + "-key-3", request(client + "-txn-3", "5.00", LocalDate.of(2025, 4, 1))),
+				item(client + "-key-4", request(client + "-txn-4", "1.00", LocalDate.of(2025, 4, 2)))));
+
+		List<DailySummary> summary = transactionQueryService.getSummary(client, TransactionFilter.builder().build());
+		assertThat(summary).hasSize(2);
+		assertThat(summary.get(0).getCount()).isEqualTo(3);
+		assertThat(summary.get(0).getTotalAmount()).isEqualByComparingTo("17.75");
+		assertThat(summary.get(1).getDate()).isEqualTo(LocalDate.of(2025, 4, 2));
+		assertThat(summary.get(1).getCount()).isEqualTo(1);
+
+		assertThat(transactionQueryService.getSummary(client, TransactionFilter.builder().from(LocalDate.of(2025, 4, 2)).build()))
+				.hasSize(1);
+	}
+
+	@Test
+	void rebuildFixesRollupsThatDrifted() throws Exception {
+		String client = authenticate();
+		transactionService.batchProcess(List.of(
+				item(client + "-key-1", request(client + "-txn-1", "3.00", LocalDate.of(2025, 1, 15))),
+				item(client + "-key-2", request(client + "-txn-2", "4.00", LocalDate.of(2025, 3, 20)))));
+		List<DailySummary> expected = transactionQueryService.getSummary(client, TransactionFilter.builder().build());
+
+		jdbcTemplate.update("UPDATE transaction_daily_rollup SET transaction_count = 99 WHERE client_id = ?", client);
+		jdbcTemplate.update("""
+				INSERT INTO transaction_daily_rollup (client_id, transaction_date, currency, type, status, transaction_count, total_amount)
+				VALUES (?, '2025-02-01', 'USD', 'PURCHASE', 'COMPLETED', 1, 1.00)""", client);
+
+		rollupRebuildService.rebuild();
+
+		assertThat(transactionQueryService.getSummary(client, TransactionFilter.builder().build())).isEqualTo(expected);
+	}
+
+	private String authenticate() {
+		String client = TestClients.create(clientRepository, "client");
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(client, null, List.of()));
+		return client;
+	}
+
+	private static BatchTransactionItem item(String key, TransactionRequest request) {
+		BatchTransactionItem item = new BatchTransactionItem();
+		item.setIdempotencyKey(key);
+		item.setTransaction(request);
+		return item;
+	}
+
+	private static TransactionRequest request(String id, String amount, LocalDate date) {
+		TransactionRequest request = new TransactionRequest();
+		request.setId(id);
+		request.setType("PURCHASE");
+		request.setStatus("COMPLETED");
+		request.setAmount(new BigDecimal(amount));
+		request.setCurrency("USD");
+		request.setCardUid("card-1");
+		request.setCreatedAt(date);
+		return request;
+	}
+}
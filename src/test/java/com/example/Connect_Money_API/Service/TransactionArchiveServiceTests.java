@@ -0,0 +1,75 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.TestClients;
+import com.example.Connect_Money_API.model.Transaction;
+import com.example.Connect_Money_API.repository.ClientRepository;
+import com.example.Connect_Money_API.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"transactions.partitioning.archive-batch-size=3",
+		"transactions.partitioning.archive-batch-pause=0"})
+@ActiveProfiles("test")
+class TransactionArchiveServiceTests {
+
+	@Autowired
+	private TransactionArchiveService transactionArchiveService;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void movesRowsPastTheRetentionInBatches() throws InterruptedException {
+		// dated long before anything the other tests write, the shared DB keeps their rows
+		String client = TestClients.create(clientRepository, "archive");
+		for (int i = 1; i <= 7; i++) {
+			transactionRepository.save(transaction(client, client + "-old-" + i, LocalDate.of(1990, 1, i)));
+		}
+		transactionRepository.save(transaction(client, client + "-kept", LocalDate.of(1990, 6, 1)));
+
+		// 24 months of retention from June 1992 keeps June 1990 onwards
+		long moved = transactionArchiveService.archive(LocalDate.of(1992, 6, 15));
+
+		assertThat(moved).isEqualTo(7);
+		assertThat(jdbcTemplate.queryForList("SELECT transaction_id FROM transactions WHERE client_id = (SELECT id FROM client WHERE client_id = ?)", String.class, client))
+				.containsExactly(client + "-kept");
+		assertThat(jdbcTemplate.queryForList("SELECT transaction_id FROM transactions_archive WHERE client_id = (SELECT id FROM client WHERE client_id = ?) ORDER BY transaction_date", String.class, client))
+				.containsExactlyElementsOf(List.of(client + "-old-1", client + "-old-2", client + "-old-3", client + "-old-4",
+						client + "-old-5", client + "-old-6", client + "-old-7"));
+		assertThat(transactionArchiveService.archive(LocalDate.of(1992, 6, 15))).isZero();
+	}
+
+	@Test
+	void noPartitionsToMakeWithoutPartitioning() {
+		assertThat(transactionArchiveService.createPartitions(LocalDate.now())).isZero();
+	}
+
+	private static Transaction transaction(String client, String id, LocalDate date) {
+		return Transaction.builder()
+				.transactionId(id)
+				.type("PURCHASE")
+				.status("COMPLETED")
+				.amount(new BigDecimal("10.50"))
+				.currency("USD")
+				.cardUid("card-1")
+				.transactionDate(date)
+				.clientId(client)
+				.build();
+	}
+}
@@ -0,0 +1,111 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.TestClients;
+import com.example.Connect_Money_API.dto.ExportFormat;
+import com.example.Connect_Money_API.model.Transaction;
+import com.example.Connect_Money_API.repository.ClientRepository;
+import com.example.Connect_Money_API.repository.TransactionRepository;
+import com.example.Connect_Money_API.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class TransactionExportServiceTests {
+
+	@Autowired
+	private TransactionExportService transactionExportService;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	void exportsNdjsonAndCsvInDateOrder() throws IOException {
+		String client = seed();
+
+		ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+		long rows = transactionExportService.export(client, null, null, ExportFormat.NDJSON, ndjson);
+		assertThat(rows).isEqualTo(3);
+		assertThat(ndjson.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+				"{\"id\":\"" + client + "-1\",\"type\":\"PURCHASE\",\"status\":\"COMPLETED\",\"amount\":10.50,\"currency\":\"USD\",\"cardUid\":\"card,1\",\"createdAt\":\"2025-03-01\"}",
+				"{\"id\":\"" + client + "-2\",\"type\":\"PURCHASE\",\"status\":\"COMPLETED\",\"amount\":10.50,\"currency\":\"USD\",\"cardUid\":\"card,1\",\"createdAt\":\"2025-03-02\"}",
+				"{\"id\":\"" + client + "-3\",\"type\":\"PURCHASE\",\"status\":\"COMPLETED\",\"amount\":10.50,\"currency\":\"USD\",\"cardUid\":\"card,1\",\"createdAt\":\"2025-03-03\"}");
+
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		transactionExportService.export(client, LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 2), ExportFormat.CSV, csv);
+		assertThat(csv.toString(StandardCharsets.UTF_8)).isEqualTo(
+				"id,type,status,amount,currency,cardUid,createdAt\r\n"
+						+ client + "-2,PURCHASE,COMPLETED,10.50,USD,\"card,1\",2025-03-02\r\n");
+	}
+
+	@Test
+	void exportEndpointStreamsGzip() throws Exception {
+		String client = seed();
+
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/transactions/export?format=csv"))
+				.header("Authorization", "Bearer " + jwtService.generateToken(client))
+				.header("Accept-Encoding", "gzip")
+				.build();
+		HttpResponse<byte[]> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+		assertThat(response.statusCode()).isEqualTo(200);
+		assertThat(response.headers().firstValue("Content-Encoding")).contains("gzip");
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+			assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\r\n")).hasSize(4);
+		}
+	}
+
+	private String seed() {
+		String client = client();
+		transactionRepository.saveAll(List.of(
+				transaction(client + "-3", client, LocalDate.of(2025, 3, 3)),
+				transaction(client + "-1", client, LocalDate.of(2025, 3, 1)),
+				transaction(client + "-2", client, LocalDate.of(2025, 3, 2)),
+				transaction(client + "-other", client(), LocalDate.of(2025, 3, 1))));
+		return client;
+	}
+
+	private String client() {
+		return TestClients.create(clientRepository, "client");
+	}
+
+	private static Transaction transaction(String id, String clientId, LocalDate date) {
+		return Transaction.builder()
+				.transactionId(id)
+				.type("PURCHASE")
+				.status("COMPLETED")
+				.amount(new BigDecimal("10.50"))
+				.currency("USD")
+				.cardUid("card,1")
+				.transactionDate(date)
+				.clientId(clientId)
+				.build();
+	}
+}
@@ -0,0 +1,145 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.TestClients;
+import com.example.Connect_Money_API.dto.TransactionFilter;
+import com.example.Connect_Money_API.dto.TransactionPageResponse;
+import com.example.Connect_Money_API.dto.TransactionResponse;
+import com.example.Connect_Money_API.model.Transaction;
+import com.example.Connect_Money_API.repository.ClientRepository;
+import com.example.Connect_Money_API.repository.TransactionRepository;
+import com.example.Connect_Money_API.util.TransactionCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionQueryServiceTests {
+
+	@Autowired
+	private TransactionQueryService transactionQueryService;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void pagesThroughOwnTransactionsInDateOrder() {
+		String client = client();
+		List<Transaction> rows = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			// a few rows per day so the id has to break ties inside a date
+			rows.add(transaction(client + "-txn-" + i, client, LocalDate.of(2025, 1, 1 + (24 - i) / 3), "COMPLETED"));
+		}
+		rows.add(transaction(client + "-other", client(), LocalDate.of(2025, 1, 1), "COMPLETED"));
+		transactionRepository.saveAll(rows);
+
+		List<TransactionResponse> seen = new ArrayList<>();
+		TransactionCursor cursor = null;
+		int pages = 0;
+		do {
+			TransactionPageResponse page = transactionQueryService.findTransactions(client, TransactionFilter.builder().build(), cursor, 10);
+			seen.addAll(page.getTransactions());
+			cursor = page.getNextCursor() == null ? null : TransactionCursor.decode(page.getNextCursor()).orElseThrow();
+			pages++;
+		} while (cursor != null);
+
+		assertThat(pages).isEqualTo(3);
+		assertThat(seen).hasSize(25);
+		assertThat(seen).extracting(TransactionResponse::getId).doesNotHaveDuplicates().doesNotContain(client + "-other");
+		assertThat(seen).extracting(TransactionResponse::getCreatedAt).isSorted();
+	}
+
+	@Test
+	void appliesTheFilters() {
+		String client = client();
+		transactionRepository.saveAll(List.of(
+				transaction(client + "-1", client, LocalDate.of(2025, 2, 1), "COMPLETED"),
+				transaction(client + "-2", client, LocalDate.of(2025, 2, 10), "FAILED"),
+				transaction(client + "-3", client, LocalDate.of(2025, 2, 20), "COMPLETED")));
+
+		TransactionPageResponse page = transactionQueryService.findTransactions(client, TransactionFilter.builder()
+				.from(LocalDate.of(2025, 2, 5))
+				.status("COMPLETED")
+				.build(), null, 10);
+
+		assertThat(page.getTransactions()).extracting(TransactionResponse::getId).containsExactly(client + "-3");
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	void storesCodesAndMinorUnitsAndReadsBackTheSameAmounts() {
+		String client = client();
+		Transaction yen = transaction(client + "-jpy", client, LocalDate.of(2025, 3, 1), "PENDING");
+		yen.setAmount(new BigDecimal("1500"));
+		yen.setCurrency("JPY");
+		Transaction dinar = transaction(client + "-kwd", client, LocalDate.of(2025, 3, 2), "REVERSED");
+		dinar.setAmount(new BigDecimal("12.345"));
+		dinar.setCurrency("KWD");
+		transactionRepository.saveAll(List.of(yen, dinar, transaction(client + "-usd", client, LocalDate.of(2025, 3, 3), "COMPLETED")));
+
+		assertThat(jdbcTemplate.queryForList("""
+				SELECT t.type, t.status, t.amount, t.currency FROM transactions t JOIN client c ON c.id = t.client_id
+				WHERE c.client_id = ? ORDER BY t.transaction_date""", client))
+				.extracting(row -> List.of(row.get("type").toString(), row.get("status").toString(), row.get("amount").toString(), row.get("currency")))
+				.containsExactly(List.of("1", "1", "1500", "JPY"), List.of("1", "5", "12345", "KWD"), List.of("1", "2", "1050", "USD"));
+
+		TransactionPageResponse page = transactionQueryService.findTransactions(client, TransactionFilter.builder().build(), null, 10);
+		assertThat(page.getTransactions()).extracting(TransactionResponse::getAmount)
+				.containsExactly(new BigDecimal("1500"), new BigDecimal("12.345"), new BigDecimal("10.50"));
+		assertThat(page.getTransactions()).extracting(TransactionResponse::getStatus).containsExactly("PENDING", "REVERSED", "COMPLETED");
+	}
+
+	@Test
+	void unknownTypeOrStatusFilterFindsNothing() {
+		String client = client();
+		transactionRepository.save(transaction(client + "-1", client, LocalDate.of(2025, 4, 1), "COMPLETED"));
+
+		assertThat(transactionQueryService.findTransactions(client, TransactionFilter.builder().status("SETTLED").build(), null, 10)
+				.getTransactions()).isEmpty();
+		assertThat(transactionQueryService.findTransactions(client, TransactionFilter.builder().type("GIFT").build(), null, 10)
+				.getTransactions()).isEmpty();
+		assertThat(transactionQueryService.findTransactions(client, TransactionFilter.builder().type("PURCHASE").build(), null, 10)
+				.getTransactions()).hasSize(1);
+	}
+
+	@Test
+	void rejectsMadeUpCursors() {
+		assertThat(TransactionCursor.decode("not a cursor")).isEmpty();
+		assertThat(TransactionCursor.decode("AAAA")).isEmpty();
+
+		TransactionCursor cursor = new TransactionCursor(LocalDate.of(2025, 3, 1), 42);
+		assertThat(TransactionCursor.decode(cursor.encode())).contains(cursor);
+	}
+
+	private String client() {
+		return TestClients.create(clientRepository, "client");
+	}
+
+	private static Transaction transaction(String id, String clientId, LocalDate date, String status) {
+		return Transaction.builder()
+				.transactionId(id)
+				.type("PURCHASE")
+				.status(status)
+				.amount(new BigDecimal("10.50"))
+				.currency("USD")
+				.cardUid("card-1")
+				.transactionDate(date)
+				.clientId(clientId)
+				.build();
+	}
+}
@@ -0,0 +1,278 @@
+package com.example.Connect_Money_API.Service;
+
+import com.example.Connect_Money_API.dto.BatchItemResult;
+import com.example.Connect_Money_API.dto.BatchItemStatus;
+import com.example.Connect_Money_API.dto.BatchTransactionItem;
+import com.example.Connect_Money_API.dto.BatchTransactionResponse;
+import com.example.Connect_Money_API.dto.TransactionRequest;
+import com.example.Connect_Money_API.dto.TransactionResult;
+import com.example.Connect_Money_API.repository.IdempotencyKeyRepository;
+import com.example.Connect_Money_API.repository.TransactionIdRepository;
+import com.example.Connect_Money_API.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionServiceTests {
+
+	@Autowired
+	private TransactionService transactionService;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Autowired
+	private TransactionIdRepository transactionIdRepository;
+
+	@Autowired
+	private IdempotencyKeyRepository idempotencyKeyRepository;
+
+	@Autowired
+	private IdempotencyKeyCache idempotencyKeyCache;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@BeforeEach
+	void authenticate() {
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken("test_client", null, List.of()));
+	}
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void batchReportsCreatedDuplicateAndInvalidItems() {
+		String prefix = UUID.randomUUID().toString();
+		transactionService.transactionProcess(prefix + "-key-0", request(prefix + "-txn-0"));
+
+		BatchTransactionItem invalid = item(prefix + "-key-3", request(prefix + "-txn-3"));
+		invalid.getTransaction().setAmount(BigDecimal.ZERO);
+
+		BatchTransactionResponse response = transactionService.batchProcess(List.of(
+				item(prefix + "-key-0", request(prefix + "-txn-0")),  // already processed
+				item(prefix + "-key-1", request(prefix + "-txn-1")),
+				item(prefix + "-key-1", request(prefix + "-txn-2")),  // same key twice in the batch
+				invalid,
+				item(prefix + "-key-4", request(prefix + "-txn-4"))));
+
+		assertThat(response.getResults()).extracting(BatchItemResult::getStatus).containsExactly(
+				BatchItemStatus.DUPLICATE, BatchItemStatus.CREATED, BatchItemStatus.DUPLICATE,
+				BatchItemStatus.INVALID, BatchItemStatus.CREATED);
+		assertThat(response.getResults().get(3).getErrors()).containsKey("transaction.amount");
+		assertThat(response.getCreated()).isEqualTo(2);
+		assertThat(transactionRepository.findTransactionByTransactionId(prefix + "-txn-4")).isPresent();
+		assertThat(idempotencyKeyRepository.findIdempotencyKeyByIdempotencyKey(prefix + "-key-4")).isPresent();
+		assertThat(transactionRepository.findTransactionByTransactionId(prefix + "-txn-2")).isEmpty();
+	}
+
+	@Test
+	void rejectsWhatTheCompactColumnsCannotHold() {
+		String prefix = UUID.randomUUID().toString();
+		TransactionRequest unknownType = request(prefix + "-txn-0");
+		unknownType.setType("GIFT");
+		TransactionRequest tooPrecise = request(prefix + "-txn-1");
+		tooPrecise.setAmount(new BigDecimal("10.505")); // EGP has 2 decimals
+		TransactionRequest yen = request(prefix + "-txn-2");
+		yen.setCurrency("JPY");
+		yen.setAmount(new BigDecimal("1500"));
+
+		BatchTransactionResponse response = transactionService.batchProcess(List.of(
+				item(prefix + "-key-0", unknownType),
+				item(prefix + "-key-1", tooPrecise),
+				item(prefix + "-key-2", yen)));
+
+		assertThat(response.getResults()).extracting(BatchItemResult::getStatus).containsExactly(
+				BatchItemStatus.INVALID, BatchItemStatus.INVALID, BatchItemStatus.CREATED);
+		assertThat(response.getResults().get(0).getErrors()).containsKey("transaction.type");
+		assertThat(response.getResults().get(1).getErrors()).containsKey("transaction.amountInMinorUnits");
+		assertThat(transactionRepository.findTransactionByTransactionId(prefix + "-txn-2"))
+				.hasValueSatisfying(transaction -> assertThat(transaction.getAmount()).isEqualByComparingTo("1500"));
+	}
+
+	@Test
+	void commitIsTimedAsItsOwnStage() {
+		String prefix = UUID.randomUUID().toString();
+		long commitsBefore = meterRegistry.get("transactions.process.stage").tag("stage", "commit").timer().count();
+
+		transactionService.transactionProcess(prefix + "-key", request(prefix + "-txn"));
+		transactionService.transactionProcess(prefix + "-key", request(prefix + "-txn")); // replayed, nothing committed
+
+		assertThat(meterRegistry.get("transactions.process.stage").tag("stage", "commit").timer().count() - commitsBefore).isEqualTo(1);
+	}
+
+	@Test
+	void codesAreTakenInAnyCase() {
+		String prefix = UUID.randomUUID().toString();
+		TransactionRequest lowerCase = request(prefix + "-txn");
+		lowerCase.setType("payment");
+		lowerCase.setStatus("Completed");
+		lowerCase.setCurrency("egp");
+
+		BatchTransactionResponse response = transactionService.batchProcess(List.of(item(prefix + "-key", lowerCase)));
+
+		assertThat(response.getResults()).extracting(BatchItemResult::getStatus).containsExactly(BatchItemStatus.CREATED);
+		assertThat(transactionRepository.findTransactionByTransactionId(prefix + "-txn")).hasValueSatisfying(transaction -> {
+			assertThat(transaction.getType()).isEqualTo("PAYMENT");
+			assertThat(transaction.getStatus()).isEqualTo("COMPLETED");
+			assertThat(transaction.getCurrency()).isEqualTo("EGP");
+		});
+	}
+
+	@Test
+	void retryIsAnsweredFromTheCacheWithoutReadingTheTable() {
+		String prefix = UUID.randomUUID().toString();
+		transactionService.transactionProcess(prefix + "-key", request(prefix + "-txn"));
+		assertThat(idempotencyKeyCache.isProcessed(prefix + "-key")).isTrue();
+
+		// if the retry went to the table it would not find the key and insert the transaction again
+		idempotencyKeyRepository.delete(idempotencyKeyRepository.findIdempotencyKeyByIdempotencyKey(prefix + "-key").orElseThrow());
+		TransactionResult retry = transactionService.transactionProcess(prefix + "-key", request(prefix + "-txn-retry"));
+
+		assertThat(idempotencyKeyRepository.findIdempotencyKeyByIdempotencyKey(prefix + "-key")).isEmpty();
+		// the id of the transaction the key created, same as a replay read from the table
+		assertThat(retry.isReplayed()).isTrue();
+		assertThat(retry.getTransactionId()).isEqualTo(prefix + "-txn");
+	}
+
+	@Test
+	void concurrentDuplicatesInsertOnceAndAllGetTheSameAnswer() throws Exception {
+		String prefix = UUID.randomUUID().toString();
+		int attempts = 300;
+		ExecutorService pool = Executors.newFixedThreadPool(64);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<TransactionResult>> futures = new ArrayList<>();
+			for (int i = 0; i < attempts; i++) {
+				futures.add(pool.submit(() -> {
+					SecurityContextHolder.getContext().setAuthentication(
+							new UsernamePasswordAuthenticationToken("test_client", null, List.of()));
+					start.await();
+					try {
+						return transactionService.transactionProcess(prefix + "-key", request(prefix + "-txn"));
+					} finally {
+						SecurityContextHolder.clearContext();
+					}
+				}));
+			}
+			start.countDown();
+
+			List<TransactionResult> results = new ArrayList<>();
+			for (Future<TransactionResult> future : futures) {
+				results.add(future.get(30, TimeUnit.SECONDS)); // throws if any attempt failed
+			}
+
+			assertThat(results).extracting(TransactionResult::getStatus).containsOnly(200);
+			assertThat(results).filteredOn(result -> !result.isReplayed()).hasSize(1);
+			assertThat(transactionIdRepository.findExisting(List.of(prefix + "-txn"))).hasSize(1);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void concurrentBatchesReportTheItemsTheyLostAsDuplicates() throws Exception {
+		String prefix = UUID.randomUUID().toString();
+		int attempts = 50;
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<BatchTransactionResponse>> futures = new ArrayList<>();
+			for (int i = 0; i < attempts; i++) {
+				// the same two items, plus one of its own so a lost race doesn't leave the batch empty
+				List<BatchTransactionItem> items = List.of(
+						item(prefix + "-key-a", request(prefix + "-txn-a")),
+						item(prefix + "-key-b", request(prefix + "-txn-b")),
+						item(prefix + "-key-" + i, request(prefix + "-txn-" + i)));
+				futures.add(pool.submit(() -> {
+					start.await();
+					return transactionService.batchProcess("test_client", items);
+				}));
+			}
+			start.countDown();
+
+			List<BatchItemResult> results = new ArrayList<>();
+			for (Future<BatchTransactionResponse> future : futures) {
+				results.addAll(future.get(30, TimeUnit.SECONDS).getResults()); // throws if a batch failed
+			}
+
+			assertThat(results).filteredOn(result -> result.getStatus() == BatchItemStatus.CREATED)
+					.extracting(BatchItemResult::getIdempotencyKey)
+					.containsOnlyOnce(prefix + "-key-a", prefix + "-key-b")
+					.hasSize(attempts + 2);
+			assertThat(results).filteredOn(result -> result.getStatus() == BatchItemStatus.DUPLICATE).hasSize(2 * (attempts - 1));
+			assertThat(transactionIdRepository.findExisting(List.of(prefix + "-txn-a", prefix + "-txn-b"))).hasSize(2);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void transactionIdTakenOutsideTheTableIsStillADuplicate() {
+		// stands in for a row with another transaction_date (another partition on MySQL) or an archived one
+		String prefix = UUID.randomUUID().toString();
+		jdbcTemplate.update("INSERT INTO transaction_ids (transaction_id) VALUES (?)", prefix + "-txn");
+
+		assertThatThrownBy(() -> transactionService.transactionProcess(prefix + "-key-0", request(prefix + "-txn")))
+				.isInstanceOf(DataIntegrityViolationException.class);
+		assertThat(idempotencyKeyRepository.findIdempotencyKeyByIdempotencyKey(prefix + "-key-0")).isEmpty(); // rolled back
+		assertThat(transactionRepository.findTransactionByTransactionId(prefix + "-txn")).isEmpty();
+
+		BatchTransactionResponse response = transactionService.batchProcess(List.of(
+				item(prefix + "-key-1", request(prefix + "-txn")),
+				item(prefix + "-key-2", request(prefix + "-txn-2"))));
+		assertThat(response.getResults()).extracting(BatchItemResult::getStatus)
+				.containsExactly(BatchItemStatus.DUPLICATE, BatchItemStatus.CREATED);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_ids WHERE transaction_id = ?",
+				Integer.class, prefix + "-txn-2")).isEqualTo(1);
+	}
+
+	static BatchTransactionItem item(String idempotencyKey, TransactionRequest request) {
+		BatchTransactionItem item = new BatchTransactionItem();
+		item.setIdempotencyKey(idempotencyKey);
+		item.setTransaction(request);
+		return item;
+	}
+
+	static TransactionRequest request(String id) {
+		TransactionRequest request = new TransactionRequest();
+		request.setId(id);
+		request.setType("PAYMENT");
+		request.setStatus("COMPLETED");
+		request.setAmount(new BigDecimal("10.50"));
+		request.setCurrency("EGP");
+		request.setCardUid("100003145552");
+		request.setCreatedAt(LocalDate.of(2025, 11, 20));
+		return request;
+	}
+}
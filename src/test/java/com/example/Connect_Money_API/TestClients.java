@@ -0,0 +1,20 @@
+package com.example.Connect_Money_API;
+
+import com.example.Connect_Money_API.model.Client;
+import com.example.Connect_Money_API.repository.ClientRepository;
+
+import java.util.UUID;
+
+// transactions point at client.id, so the client has to exist before its transactions are saved.
+// A new one per test keeps the tests apart in the shared DB.
+public final class TestClients {
+
+	private TestClients() {
+	}
+
+	public static String create(ClientRepository clientRepository, String prefix) {
+		String clientId = prefix + "-" + UUID.randomUUID();
+		clientRepository.save(Client.builder().clientId(clientId).clientSecret("").active(true).failedAttempts(0).build());
+		return clientId;
+	}
+}
@@ -0,0 +1,129 @@
+package com.example.Connect_Money_API.benchmark;
+
+import com.example.Connect_Money_API.Service.TransactionExportService;
+import com.example.Connect_Money_API.dto.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Run with: mvn test -Dbenchmarks=true -Dtest=ExportMemoryBenchmarkTests -DargLine=-Xmx96m
+// Exports benchmark.rows transactions (5M by default) of one client through TransactionExportService
+// with a heap that couldn't hold a fraction of them as entities. The DB is an H2 file under target/
+// so the rows themselves don't live in the heap either.
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ExportMemoryBenchmarkTests {
+
+	private static final Path DIRECTORY = Path.of("target", "export-benchmark");
+	private static final String URL = "jdbc:h2:file:./target/export-benchmark/db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+	private static final int ROWS = Integer.getInteger("benchmark.rows", 5_000_000);
+	private static final long MAX_HEAP = 256L * 1024 * 1024;
+
+	private static DriverManagerDataSource dataSource;
+
+	@BeforeAll
+	static void fill() throws IOException, SQLException {
+		if (Files.exists(DIRECTORY)) {
+			try (Stream<Path> files = Files.walk(DIRECTORY)) {
+				files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+			}
+		}
+		dataSource = new DriverManagerDataSource(URL, "sa", "");
+		Flyway.configure().dataSource(dataSource).load().migrate();
+
+		try (Connection connection = dataSource.getConnection();
+			 PreparedStatement ps = connection.prepareStatement("""
+					 INSERT INTO transactions (id, transaction_id, type, status, amount, currency, card_uid, transaction_date, client_id)
+					 VALUES (?, ?, 2, 2, ?, 'EGP', '100003145552', ?, ?)""")) {
+			long exportClient = client(connection, "export_client");
+			connection.setAutoCommit(false);
+			LocalDate start = LocalDate.of(2020, 1, 1);
+			for (int i = 0; i < ROWS; i++) {
+				ps.setLong(1, 1_000_000L + i);
+				ps.setString(2, "export-bench-" + i);
+				ps.setLong(3, 1050); // PAYMENT, COMPLETED, 10.50 EGP in the compact encoding
+				ps.setDate(4, Date.valueOf(start.plusDays(i / 10_000)));
+				ps.setLong(5, exportClient);
+				ps.addBatch();
+				if ((i + 1) % 1000 == 0) {
+					ps.executeBatch();
+					connection.commit();
+				}
+			}
+			ps.executeBatch();
+			connection.commit();
+		}
+	}
+
+	// transactions.client_id is the client row's id
+	private static long client(Connection connection, String clientId) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(
+				"INSERT INTO client (client_id, client_secret, active, failed_attempts) VALUES (?, 'unused', TRUE, 0)",
+				Statement.RETURN_GENERATED_KEYS)) {
+			ps.setString(1, clientId);
+			ps.executeUpdate();
+			try (ResultSet keys = ps.getGeneratedKeys()) {
+				keys.next();
+				return keys.getLong(1);
+			}
+		}
+	}
+
+	@Test
+	void exportsEveryRowWithASmallHeap() throws IOException {
+		long maxHeap = Runtime.getRuntime().maxMemory();
+		assertThat(maxHeap).as("run it with a small heap, e.g. -DargLine=-Xmx96m").isLessThanOrEqualTo(MAX_HEAP);
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+
+		TransactionExportService exportService = new TransactionExportService(new JdbcTemplate(dataSource), new ObjectMapper());
+		CountingOutputStream out = new CountingOutputStream();
+		long start = System.nanoTime();
+		long rows = exportService.export("export_client", null, null, ExportFormat.NDJSON, out);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		long peakHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+				.filter(pool -> pool.getType() == MemoryType.HEAP)
+				.mapToLong(pool -> pool.getPeakUsage().getUsed())
+				.sum();
+		System.out.printf("%,d rows, %,d MB of NDJSON in %.1f s (%,.0f rows/s), max heap %d MB, peak heap %d MB%n",
+				rows, out.bytes / (1024 * 1024), seconds, rows / seconds, maxHeap / (1024 * 1024), peakHeap / (1024 * 1024));
+		assertThat(rows).isEqualTo(ROWS);
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		private long bytes;
+
+		@Override
+		public void write(int b) {
+			bytes++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			bytes += len;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package com.example.Connect_Money_API.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Run with: mvn test -Dbenchmarks=true -Dtest=InsertThroughputBenchmarkTests
+// Compares the old IDENTITY write path (one statement + generated key fetch per row)
+// with pooled ids + JDBC batches, against H2 in MySQL mode. On a real MySQL the gap is
+// bigger because every round trip pays network latency too.
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class InsertThroughputBenchmarkTests {
+
+	private static final String URL = "jdbc:h2:mem:insert_benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+	private static final int ROWS = Integer.getInteger("benchmark.rows", 50_000);
+	private static final int BLOCK = 50;
+
+	private static final String INSERT_IDENTITY = """
+			INSERT INTO transactions (transaction_id, type, status, amount, currency, card_uid, transaction_date, client_id)
+			VALUES (?, ?, ?, ?, ?, ?, ?, ?)""";
+
+	private static final String INSERT_POOLED = """
+			INSERT INTO transactions (id, transaction_id, type, status, amount, currency, card_uid, transaction_date, client_id)
+			VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+	private static long testClient;
+
+	@BeforeAll
+	static void migrate() throws SQLException {
+		Flyway.configure().dataSource(URL, "sa", "").load().migrate();
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+			 Statement statement = connection.createStatement();
+			 ResultSet rs = statement.executeQuery("SELECT id FROM client WHERE client_id = 'test_client'")) {
+			rs.next();
+			testClient = rs.getLong(1);
+		}
+	}
+
+	@Test
+	void identityVersusPooledBatchedInserts() throws SQLException {
+		// warm up both paths before measuring
+		identityInserts("warmup-identity", ROWS / 10);
+		pooledBatchedInserts("warmup-pooled", ROWS / 10);
+
+		double identity = identityInserts("identity", ROWS);
+		double pooled = pooledBatchedInserts("pooled", ROWS);
+
+		System.out.printf("IDENTITY, row by row : %,.0f rows/s%n", identity);
+		System.out.printf("pooled ids, batch %d : %,.0f rows/s (x%.1f)%n", BLOCK, pooled, pooled / identity);
+		assertThat(pooled).isGreaterThan(identity);
+	}
+
+	private double identityInserts(String prefix, int rows) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+			connection.setAutoCommit(false);
+			long start = System.nanoTime();
+			try (PreparedStatement ps = connection.prepareStatement(INSERT_IDENTITY, Statement.RETURN_GENERATED_KEYS)) {
+				for (int i = 0; i < rows; i++) {
+					bind(ps, 1, prefix + "-" + i);
+					ps.executeUpdate();
+					try (ResultSet keys = ps.getGeneratedKeys()) {
+						keys.next();
+					}
+				}
+			}
+			connection.commit();
+			return rows / ((System.nanoTime() - start) / 1e9);
+		}
+	}
+
+	private double pooledBatchedInserts(String prefix, int rows) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+			// the identity runs moved AUTO_INCREMENT past the generator, same as V4 does on real data
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate("UPDATE id_generators SET next_val = (SELECT MAX(id) FROM transactions) + " + BLOCK
+						+ " WHERE sequence_name = 'transactions'");
+			}
+			connection.setAutoCommit(false);
+			long start = System.nanoTime();
+			try (PreparedStatement ps = connection.prepareStatement(INSERT_POOLED)) {
+				long nextId = 0;
+				long blockEnd = -1;
+				for (int i = 0; i < rows; i++) {
+					if (nextId > blockEnd) {
+						blockEnd = reserveBlock(connection);
+						nextId = blockEnd - BLOCK + 1;
+					}
+					ps.setLong(1, nextId++);
+					bind(ps, 2, prefix + "-" + i);
+					ps.addBatch();
+					if ((i + 1) % BLOCK == 0) {
+						ps.executeBatch();
+					}
+				}
+				ps.executeBatch();
+			}
+			connection.commit();
+			return rows / ((System.nanoTime() - start) / 1e9);
+		}
+	}
+
+	// same thing hibernate's pooled optimizer does once every BLOCK ids
+	private long reserveBlock(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.executeUpdate("UPDATE id_generators SET next_val = next_val + " + BLOCK + " WHERE sequence_name = 'transactions'");
+			try (ResultSet rs = statement.executeQuery("SELECT next_val FROM id_generators WHERE sequence_name = 'transactions'")) {
+				rs.next();
+				return rs.getLong(1);
+			}
+		}
+	}
+
+	private void bind(PreparedStatement ps, int first, String transactionId) throws SQLException {
+		ps.setString(first, transactionId);
+		// stored compact: PAYMENT, COMPLETED, 10.50 EGP in piasters
+		ps.setByte(first + 1, (byte) 2);
+		ps.setByte(first + 2, (byte) 2);
+		ps.setLong(first + 3, 1050);
+		ps.setString(first + 4, "EGP");
+		ps.setString(first + 5, "100003145552");
+		ps.setDate(first + 6, Date.valueOf(LocalDate.of(2025, 11, 20)));
+		ps.setLong(first + 7, testClient);
+	}
+}
@@ -0,0 +1,178 @@
+package com.example.Connect_Money_API.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Run with: mvn test -Dbenchmarks=true -Dtest=KeysetPaginationBenchmarkTests -Dbenchmark.rows=20000000
+// Fills one client's transactions and times fetching a page deep in the listing, the keyset query
+// of TransactionRepository.findPage against the OFFSET query it replaces. The keyset one should
+// cost the same for page 1 and page 10,000, OFFSET reads and throws away all the rows before.
+// H2's in-memory b-tree can skip rows by position so OFFSET looks cheap there, point it at a
+// MySQL with -Dbenchmark.url=jdbc:mysql://... -Dbenchmark.user=... -Dbenchmark.password=... to see the gap.
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class KeysetPaginationBenchmarkTests {
+
+	private static final String URL = System.getProperty("benchmark.url", "jdbc:h2:mem:pagination_benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+	private static final String USER = System.getProperty("benchmark.user", "sa");
+	private static final String PASSWORD = System.getProperty("benchmark.password", "");
+	private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+	private static final int PAGE = 100;
+	private static final int REPEAT = 20;
+
+	private static long benchClient;
+
+	private static final String KEYSET = """
+			SELECT id, transaction_id, type, status, amount, currency, card_uid, transaction_date FROM transactions
+			WHERE client_id = ? AND (transaction_date > ? OR (transaction_date = ? AND id > ?))
+			ORDER BY transaction_date, id LIMIT ?""";
+
+	private static final String OFFSET = """
+			SELECT id, transaction_id, type, status, amount, currency, card_uid, transaction_date FROM transactions
+			WHERE client_id = ?
+			ORDER BY transaction_date, id LIMIT ? OFFSET ?""";
+
+	@BeforeAll
+	static void fill() throws SQLException {
+		Flyway.configure().dataSource(URL, USER, PASSWORD).load().migrate();
+		try (Connection connection = DriverManager.getConnection(URL, USER, PASSWORD);
+			 PreparedStatement ps = connection.prepareStatement("""
+					 INSERT INTO transactions (id, transaction_id, type, status, amount, currency, card_uid, transaction_date, client_id)
+					 VALUES (?, ?, 2, 2, ?, 'EGP', '100003145552', ?, ?)""")) {
+			benchClient = client(connection, "bench_client");
+			long otherClient = client(connection, "other_client");
+			connection.setAutoCommit(false);
+			LocalDate start = LocalDate.of(2020, 1, 1);
+			for (int i = 0; i < ROWS; i++) {
+				ps.setLong(1, 1_000_000L + i);
+				ps.setString(2, "page-bench-" + i);
+				ps.setLong(3, 1050); // PAYMENT, COMPLETED, 10.50 EGP in the compact encoding
+				ps.setDate(4, Date.valueOf(start.plusDays(i / 1000))); // 1000 transactions a day
+				ps.setLong(5, i % 10 == 0 ? otherClient : benchClient);
+				ps.addBatch();
+				if ((i + 1) % 1000 == 0) {
+					ps.executeBatch();
+					connection.commit();
+				}
+			}
+			ps.executeBatch();
+			connection.commit();
+		}
+	}
+
+	// transactions.client_id is the client row's id
+	private static long client(Connection connection, String clientId) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(
+				"INSERT INTO client (client_id, client_secret, active, failed_attempts) VALUES (?, 'unused', TRUE, 0)",
+				Statement.RETURN_GENERATED_KEYS)) {
+			ps.setString(1, clientId);
+			ps.executeUpdate();
+			try (ResultSet keys = ps.getGeneratedKeys()) {
+				keys.next();
+				return keys.getLong(1);
+			}
+		}
+	}
+
+	@Test
+	void keysetPageCostDoesNotGrowWithDepth() throws SQLException {
+		int lastPage = (int) (ROWS * 0.9 / PAGE) - 1;
+		int[] pages = {0, 10, 100, 1_000, 10_000, lastPage};
+
+		try (Connection connection = DriverManager.getConnection(URL, USER, PASSWORD)) {
+			System.out.printf("%,d rows, %d per page%n", ROWS, PAGE);
+			double firstKeyset = -1;
+			double deepestKeyset = -1;
+			for (int page : pages) {
+				if (page > lastPage) {
+					continue;
+				}
+				// the cursor a client would have after reading the page before, not part of the timing
+				long[] cursor = page == 0 ? new long[]{Long.MIN_VALUE, Long.MIN_VALUE} : cursorBefore(connection, page);
+
+				double keyset = time(() -> keysetPage(connection, cursor));
+				double offset = time(() -> offsetPage(connection, page));
+				System.out.printf("page %,7d : keyset %8.3f ms   offset %9.3f ms%n", page + 1, keyset, offset);
+
+				if (firstKeyset < 0) {
+					firstKeyset = keyset;
+				}
+				deepestKeyset = keyset;
+			}
+			// generous, it's a timing on a shared machine, OFFSET is orders of magnitude off at the end
+			assertThat(deepestKeyset).isLessThan(Math.max(firstKeyset * 10, 5));
+		}
+	}
+
+	private long[] cursorBefore(Connection connection, int page) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(OFFSET)) {
+			ps.setLong(1, benchClient);
+			ps.setInt(2, 1);
+			ps.setInt(3, page * PAGE - 1);
+			try (ResultSet rs = ps.executeQuery()) {
+				rs.next();
+				return new long[]{rs.getDate("transaction_date").toLocalDate().toEpochDay(), rs.getLong("id")};
+			}
+		}
+	}
+
+	private int keysetPage(Connection connection, long[] cursor) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(KEYSET)) {
+			Date date = Date.valueOf(cursor[0] == Long.MIN_VALUE ? LocalDate.of(1970, 1, 1) : LocalDate.ofEpochDay(cursor[0]));
+			ps.setLong(1, benchClient);
+			ps.setDate(2, date);
+			ps.setDate(3, date);
+			ps.setLong(4, cursor[1]);
+			ps.setInt(5, PAGE);
+			return drain(ps);
+		}
+	}
+
+	private int offsetPage(Connection connection, int page) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(OFFSET)) {
+			ps.setLong(1, benchClient);
+			ps.setInt(2, PAGE);
+			ps.setInt(3, page * PAGE);
+			return drain(ps);
+		}
+	}
+
+	private int drain(PreparedStatement ps) throws SQLException {
+		int rows = 0;
+		try (ResultSet rs = ps.executeQuery()) {
+			while (rs.next()) {
+				rows++;
+			}
+		}
+		assertThat(rows).isEqualTo(PAGE);
+		return rows;
+	}
+
+	// average ms of REPEAT runs after a few warmups
+	private double time(PageQuery query) throws SQLException {
+		for (int i = 0; i < 3; i++) {
+			query.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < REPEAT; i++) {
+			query.run();
+		}
+		return (System.nanoTime() - start) / 1e6 / REPEAT;
+	}
+
+	private interface PageQuery {
+		int run() throws SQLException;
+	}
+}
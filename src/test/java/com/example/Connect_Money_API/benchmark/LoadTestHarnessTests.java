@@ -0,0 +1,308 @@
+package com.example.Connect_Money_API.benchmark;
+
+import com.example.Connect_Money_API.ConnectMoneyApiApplication;
+import com.example.Connect_Money_API.model.Client;
+import com.example.Connect_Money_API.repository.ClientRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Run with: mvn test -Dbenchmarks=true -Dtest=LoadTestHarnessTests
+// Boots the whole app on H2 in MySQL mode (Flyway migrations applied) and sends mixed traffic at a fixed
+// arrival rate: token requests, POST /v1/transactions where benchmark.duplicate-ratio of them resend an
+// earlier idempotency key, and every benchmark.burst-interval seconds a burst from a single IP that has
+// to run into the rate limiter.
+// Requests go out on schedule whether or not the earlier ones came back (open loop) and latency counts
+// from the scheduled send time, so a stall shows up in the percentiles instead of quietly slowing the load.
+// Fails when an endpoint misses its benchmark.budget.<endpoint>.p99-ms / p999-ms, when fewer than
+// benchmark.budget.min-throughput req/s come back OK, or when a request gets a status it shouldn't.
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class LoadTestHarnessTests {
+
+	private static final int RATE = Integer.getInteger("benchmark.rate", 200); // arrivals per second, bursts not included
+	private static final int SECONDS = Integer.getInteger("benchmark.seconds", 30);
+	private static final int WARMUP_SECONDS = Integer.getInteger("benchmark.warmup-seconds", 5);
+	private static final double TOKEN_RATIO = Double.parseDouble(System.getProperty("benchmark.token-ratio", "0.02"));
+	private static final double DUPLICATE_RATIO = Double.parseDouble(System.getProperty("benchmark.duplicate-ratio", "0.1"));
+	private static final int BURST_INTERVAL = Integer.getInteger("benchmark.burst-interval", 5);
+	private static final int BURST_SIZE = Integer.getInteger("benchmark.burst-size", 150);
+
+	private static final double MIN_THROUGHPUT = Double.parseDouble(System.getProperty("benchmark.budget.min-throughput", String.valueOf(RATE * 0.95)));
+	private static final Map<String, Long> DEFAULT_P99_MS = Map.of(
+			"token", 500L,
+			"transaction", 200L,
+			"transaction-replay", 100L,
+			"burst", 200L);
+
+	private static final String CLIENT_ID = "load_test_client";
+	private static final String CLIENT_SECRET = "load-test-secret";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+	private final AtomicInteger burstIps = new AtomicInteger();
+
+	@Test
+	void mixedTrafficStaysWithinBudget() throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ConnectMoneyApiApplication.class)
+				.profiles("test")
+				.run("--server.port=0",
+						"--logging.level.com.example=WARN",
+						"--logging.level.org.springframework.security=WARN")) {
+
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			long capacity = context.getEnvironment().getRequiredProperty("security.rate-limit.capacity", Long.class);
+			context.getBean(ClientRepository.class).save(Client.builder()
+					.clientId(CLIENT_ID)
+					.clientSecret(context.getBean(PasswordEncoder.class).encode(CLIENT_SECRET))
+					.active(true)
+					.failedAttempts(0)
+					.build());
+			Target target = new Target(URI.create("http://localhost:" + port), token(URI.create("http://localhost:" + port)));
+
+			run(target, WARMUP_SECONDS, "warmup");
+			Map<String, Stats> stats = run(target, SECONDS, "run");
+
+			String report = report(stats);
+			System.out.println(report);
+
+			List<String> misses = new ArrayList<>();
+			stats.forEach((endpoint, s) -> {
+				checkLatency(misses, endpoint, s, "p99", 0.99, DEFAULT_P99_MS.getOrDefault(endpoint, -1L));
+				checkLatency(misses, endpoint, s, "p999", 0.999, -1);
+				if (s.unexpected() > 0) {
+					misses.add("%s: %d responses with an unexpected status %s".formatted(endpoint, s.unexpected(), s.statuses()));
+				}
+			});
+
+			double throughput = stats.entrySet().stream()
+					.filter(e -> !e.getKey().equals("burst"))
+					.mapToLong(e -> e.getValue().ok())
+					.sum() / (double) SECONDS;
+			if (throughput < MIN_THROUGHPUT) {
+				misses.add("throughput %.0f req/s, budget %.0f req/s".formatted(throughput, MIN_THROUGHPUT));
+			}
+
+			Stats burst = stats.get("burst");
+			if (BURST_SIZE > capacity && burst != null && burst.statuses().getOrDefault(429, 0L) == 0) {
+				misses.add("bursts of %d from one IP never got a 429 (capacity %d)".formatted(BURST_SIZE, capacity));
+			}
+
+			assertThat(misses).as(report).isEmpty();
+		}
+	}
+
+	// the arrival schedule, one dispatcher thread hands every request to its own virtual thread at its time
+	private Map<String, Stats> run(Target target, int seconds, String phase) {
+		Map<String, Stats> stats = new TreeMap<>();
+		for (String endpoint : List.of("token", "transaction", "transaction-replay", "burst")) {
+			stats.put(endpoint, new Stats(endpoint.equals("burst") ? Arrays.asList(200, 429) : List.of(200)));
+		}
+
+		SplittableRandom random = new SplittableRandom(42);
+		String prefix = phase + "-" + UUID.randomUUID();
+		// spread over enough IPs that regular traffic never gets near the per IP limit
+		int ips = Math.max(1024, RATE * (SECONDS + WARMUP_SECONDS) / 20);
+		long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(seconds);
+		long nextBurst = start + TimeUnit.SECONDS.toNanos(BURST_INTERVAL);
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (long i = 0; ; i++) {
+				long scheduled = start + i * interval;
+				if (scheduled >= end) {
+					break;
+				}
+				while (nextBurst <= scheduled) {
+					int burst = burstIps.incrementAndGet();
+					String ip = "172.16." + (burst / 256) + "." + (burst % 256); // a fresh bucket for every burst
+					long burstAt = nextBurst;
+					for (int b = 0; b < BURST_SIZE; b++) {
+						String id = prefix + "-burst-" + burst + "-" + b;
+						executor.submit(() -> send(stats.get("burst"), burstAt, target.transaction(id, id, ip)));
+					}
+					nextBurst += TimeUnit.SECONDS.toNanos(BURST_INTERVAL);
+				}
+
+				String ip = "10.0." + (i % ips / 256) + "." + (i % 256);
+				double roll = random.nextDouble();
+				if (roll < TOKEN_RATIO) {
+					executor.submit(() -> send(stats.get("token"), scheduled, target.tokenRequest(ip)));
+				} else if (roll < TOKEN_RATIO + DUPLICATE_RATIO && target.completedCount() > 0) {
+					String id = target.completed(random.nextLong(target.completedCount()));
+					executor.submit(() -> send(stats.get("transaction-replay"), scheduled, target.transaction(id, id, ip)));
+				} else {
+					String id = prefix + "-" + i;
+					executor.submit(() -> {
+						if (send(stats.get("transaction"), scheduled, target.transaction(id, id, ip)) == 200) {
+							target.completed(id);
+						}
+					});
+				}
+
+				LockSupport.parkNanos(scheduled + interval - System.nanoTime());
+			}
+		}
+		return stats;
+	}
+
+	private int send(Stats stats, long scheduled, HttpRequest request) {
+		int status;
+		try {
+			status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+		} catch (IOException e) {
+			status = -1;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+		stats.record(System.nanoTime() - scheduled, status);
+		return status;
+	}
+
+	private String token(URI base) throws Exception {
+		HttpResponse<String> response = http.send(tokenRequest(base, "127.0.0.1"), HttpResponse.BodyHandlers.ofString());
+		assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+		return objectMapper.readTree(response.body()).get("access_token").asText();
+	}
+
+	// the form binds to the TokenRequest properties, not to the json names
+	private static HttpRequest tokenRequest(URI base, String ip) {
+		return HttpRequest.newBuilder(base.resolve("/v1/protocol/openid-connect/token"))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.header("X-Forwarded-For", ip)
+				.POST(HttpRequest.BodyPublishers.ofString("grantType=Client_Credentials&clientId=" + CLIENT_ID + "&clientSecret=" + CLIENT_SECRET))
+				.build();
+	}
+
+	private static void checkLatency(List<String> misses, String endpoint, Stats stats, String name, double quantile, long defaultBudget) {
+		long budget = Long.getLong("benchmark.budget." + endpoint + "." + name + "-ms", defaultBudget);
+		if (budget < 0 || stats.count() == 0) {
+			return;
+		}
+		long millis = TimeUnit.NANOSECONDS.toMillis(stats.percentile(quantile));
+		if (millis > budget) {
+			misses.add("%s: %s %d ms, budget %d ms".formatted(endpoint, name, millis, budget));
+		}
+	}
+
+	private static String report(Map<String, Stats> stats) {
+		StringBuilder report = new StringBuilder("%n%d req/s for %d s, %.0f%% token, %.0f%% duplicate keys, %d request burst every %d s%n"
+				.formatted(RATE, SECONDS, TOKEN_RATIO * 100, DUPLICATE_RATIO * 100, BURST_SIZE, BURST_INTERVAL));
+		report.append("%-20s %9s %9s %8s %8s %8s  %s%n".formatted("endpoint", "requests", "ok/s", "p50 ms", "p99 ms", "p999 ms", "statuses"));
+		stats.forEach((endpoint, s) -> report.append("%-20s %9d %9.1f %8.1f %8.1f %8.1f  %s%n".formatted(endpoint, s.count(),
+				s.ok() / (double) SECONDS, millis(s.percentile(0.5)), millis(s.percentile(0.99)), millis(s.percentile(0.999)), s.statuses())));
+		return report.toString();
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	private record Target(URI base, String token, AtomicReferenceArray<String> completedIds, AtomicLong completedSeq) {
+
+		Target(URI base, String token) {
+			this(base, token, new AtomicReferenceArray<>(4096), new AtomicLong());
+		}
+
+		HttpRequest transaction(String id, String idempotencyKey, String ip) {
+			return HttpRequest.newBuilder(base.resolve("/v1/transactions"))
+					.header("Authorization", "Bearer " + token)
+					.header("Content-Type", "application/json")
+					.header("idempotency-key", idempotencyKey)
+					.header("X-Forwarded-For", ip)
+					.POST(HttpRequest.BodyPublishers.ofString("""
+							{"id":"%s","type":"PURCHASE","status":"COMPLETED","amount":10.50,"currency":"USD","cardUid":"card-1","createdAt":"2025-01-01"}"""
+							.formatted(id)))
+					.build();
+		}
+
+		HttpRequest tokenRequest(String ip) {
+			return LoadTestHarnessTests.tokenRequest(base, ip);
+		}
+
+		// duplicates only reuse keys whose first request already came back, a key still in flight is a different test
+		long completedCount() {
+			return Math.min(completedSeq.get(), completedIds.length());
+		}
+
+		String completed(long index) {
+			return completedIds.get((int) index);
+		}
+
+		void completed(String id) {
+			completedIds.set((int) (completedSeq.getAndIncrement() % completedIds.length()), id);
+		}
+	}
+
+	private static final class Stats {
+		private final List<Integer> expected;
+		private final Map<Integer, Long> statuses = new LinkedHashMap<>();
+		private long[] latencies = new long[4096];
+		private int count;
+
+		Stats(List<Integer> expected) {
+			this.expected = expected;
+		}
+
+		synchronized void record(long nanos, int status) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = nanos;
+			statuses.merge(status, 1L, Long::sum);
+		}
+
+		synchronized int count() {
+			return count;
+		}
+
+		synchronized long ok() {
+			return statuses.getOrDefault(200, 0L);
+		}
+
+		synchronized long unexpected() {
+			return statuses.entrySet().stream().filter(e -> !expected.contains(e.getKey())).mapToLong(Map.Entry::getValue).sum();
+		}
+
+		synchronized Map<Integer, Long> statuses() {
+			return new TreeMap<>(statuses);
+		}
+
+		synchronized long percentile(double quantile) {
+			if (count == 0) {
+				return 0;
+			}
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			return sorted[(int) Math.min(count - 1, Math.ceil(quantile * count) - 1)];
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.example.Connect_Money_API.benchmark;
+
+import com.example.Connect_Money_API.ConnectMoneyApiApplication;
+import com.example.Connect_Money_API.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Run with: mvn test -Dbenchmarks=true -Dtest=VirtualThreadLoadBenchmarkTests
+// Starts the app twice (platform threads, then virtual threads) with benchmark.db-delay ms added
+// to every DB transaction, like MySQL having a slow moment, and hammers POST /v1/transactions
+// with benchmark.clients concurrent clients. Tomcat gets fewer threads than the pool has connections,
+// which is where the platform thread mode runs out of threads before the DB runs out of connections.
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class VirtualThreadLoadBenchmarkTests {
+
+	private static final long DB_DELAY = Long.getLong("benchmark.db-delay", 20);
+	private static final int CLIENTS = Integer.getInteger("benchmark.clients", 512);
+	private static final int SECONDS = Integer.getInteger("benchmark.seconds", 10);
+
+	@Test
+	void platformVersusVirtualThreads() throws Exception {
+		Result platform = run(false);
+		Result virtual = run(true);
+
+		System.out.printf("db delay %d ms, %d clients, %d s%n", DB_DELAY, CLIENTS, SECONDS);
+		System.out.printf("platform threads : %,8.0f req/s  p50 %4d ms  p99 %5d ms  errors %d%n", platform.throughput, platform.p50, platform.p99, platform.errors);
+		System.out.printf("virtual threads  : %,8.0f req/s  p50 %4d ms  p99 %5d ms  errors %d%n", virtual.throughput, virtual.p50, virtual.p99, virtual.errors);
+		// no winner asserted, on a box with a core or two the CPU is the limit long before the threads are
+		assertThat(platform.throughput).isPositive();
+		assertThat(virtual.throughput).isPositive();
+	}
+
+	private Result run(boolean virtualThreads) throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ConnectMoneyApiApplication.class)
+				.profiles("test")
+				.initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(new SlowCommits()))
+				// as arguments, builder properties are only defaults and application.yaml would win
+				.run("--server.port=0",
+						"--spring.threads.virtual.enabled=" + virtualThreads,
+						"--server.tomcat.threads.max=64",
+						"--spring.datasource.hikari.maximum-pool-size=256",
+						"--security.rate-limit.capacity=1000000000",
+						"--security.rate-limit.refill-tokens=1000000000",
+						"--security.concurrency-limit.enabled=false", // it's the threads being compared, not the shedding
+						"--logging.level.com.example=WARN")) {
+
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			String token = context.getBean(JwtService.class).generateToken("test_client");
+			URI uri = URI.create("http://localhost:" + port + "/v1/transactions");
+			String prefix = (virtualThreads ? "virtual-" : "platform-") + UUID.randomUUID();
+
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			load(client, uri, token, prefix + "-warmup", 2);
+			return load(client, uri, token, prefix, SECONDS);
+		}
+	}
+
+	private Result load(HttpClient client, URI uri, String token, String prefix, int seconds) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		AtomicLong sequence = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		List<Future<long[]>> futures = new ArrayList<>();
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int c = 0; c < CLIENTS; c++) {
+				futures.add(executor.submit(() -> {
+					long[] latencies = new long[1024];
+					int count = 0;
+					while (System.nanoTime() < deadline) {
+						long n = sequence.incrementAndGet();
+						HttpRequest request = HttpRequest.newBuilder(uri)
+								.header("Authorization", "Bearer " + token)
+								.header("Content-Type", "application/json")
+								.header("idempotency-key", prefix + "-key-" + n)
+								.POST(HttpRequest.BodyPublishers.ofString(body(prefix + "-txn-" + n)))
+								.build();
+						long start = System.nanoTime();
+						HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+						if (response.statusCode() != 200) {
+							errors.incrementAndGet();
+						}
+						if (count == latencies.length) {
+							latencies = Arrays.copyOf(latencies, count * 2);
+						}
+						latencies[count++] = System.nanoTime() - start;
+					}
+					return Arrays.copyOf(latencies, count);
+				}));
+			}
+		}
+
+		long[] all = futures.stream().map(VirtualThreadLoadBenchmarkTests::join).flatMapToLong(Arrays::stream).sorted().toArray();
+		return new Result(all.length / (double) seconds,
+				TimeUnit.NANOSECONDS.toMillis(all[all.length / 2]),
+				TimeUnit.NANOSECONDS.toMillis(all[(int) (all.length * 0.99)]),
+				errors.get());
+	}
+
+	private static long[] join(Future<long[]> future) {
+		try {
+			return future.get();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String body(String id) {
+		return """
+				{"id":"%s","type":"PURCHASE","status":"COMPLETED","amount":10.50,"currency":"USD","cardUid":"card-1","createdAt":"2025-01-01"}"""
+				.formatted(id);
+	}
+
+	private record Result(double throughput, long p50, long p99, long errors) {
+	}
+
+	// every transaction takes DB_DELAY longer, added before the guard wraps the pool
+	private static class SlowCommits implements BeanPostProcessor {
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			if (!(bean instanceof DataSource dataSource)) {
+				return bean;
+			}
+			return Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+				Object result = invoke(dataSource, method, args);
+				return result instanceof Connection connection ? slow(connection) : result;
+			});
+		}
+
+		private static Connection slow(Connection connection) {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+				// at the start of the transaction, H2 would otherwise hold its locks while we sleep
+				if (method.getName().equals("setAutoCommit") && Boolean.FALSE.equals(args[0])) {
+					Thread.sleep(DB_DELAY);
+				}
+				return invoke(connection, method, args);
+			});
+		}
+
+		private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.example.Connect_Money_API.config;
+
+import com.example.Connect_Money_API.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GuardedDataSourceTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void connectionGivesItsPermitBackOnceWhenClosed() throws Exception {
+		GuardedDataSource dataSource = new GuardedDataSource(h2(), 1, 10, 100, 1, meterRegistry);
+
+		Connection first = dataSource.getConnection();
+		assertThat(fromOtherThread(dataSource)).isInstanceOf(ServiceBusyException.class);
+
+		first.close();
+		first.close(); // a second close must not hand out an extra permit
+		try (Connection second = dataSource.getConnection()) {
+			assertThat(second.isValid(1)).isTrue();
+			assertThat(fromOtherThread(dataSource)).isInstanceOf(ServiceBusyException.class);
+		}
+		assertThat(meterRegistry.get("db.access.rejected").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void threadHoldingAConnectionGetsANestedOneWithoutAPermit() throws Exception {
+		GuardedDataSource dataSource = new GuardedDataSource(h2(), 1, 10, 100, 1, meterRegistry);
+
+		// what Hibernate's TABLE id generator does in the middle of a transaction
+		try (Connection outer = dataSource.getConnection()) {
+			try (Connection nested = dataSource.getConnection()) {
+				assertThat(nested.isValid(1)).isTrue();
+			}
+			assertThat(fromOtherThread(dataSource)).isInstanceOf(ServiceBusyException.class);
+		}
+
+		// the nested close didn't give back a permit it never took
+		assertThat(meterRegistry.get("db.access.available").gauge().value()).isEqualTo(1);
+		assertThat(fromOtherThread(dataSource)).isNull();
+	}
+
+	@Test
+	void rejectsRightAwayWhenTooManyAreWaiting() throws Exception {
+		GuardedDataSource dataSource = new GuardedDataSource(h2(), 1, 2, 10_000, 1, meterRegistry);
+		Connection held = dataSource.getConnection();
+
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		CountDownLatch started = new CountDownLatch(2);
+		Future<?> waiter1 = executor.submit(() -> { started.countDown(); dataSource.getConnection().close(); return null; });
+		Future<?> waiter2 = executor.submit(() -> { started.countDown(); dataSource.getConnection().close(); return null; });
+		started.await();
+		while (meterRegistry.get("db.access.waiting").gauge().value() < 2) {
+			Thread.onSpinWait();
+		}
+
+		// third waiter doesn't sit out the 10s timeout
+		long start = System.nanoTime();
+		assertThat(fromOtherThread(dataSource)).isInstanceOf(ServiceBusyException.class);
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+
+		held.close();
+		waiter1.get(5, TimeUnit.SECONDS);
+		waiter2.get(5, TimeUnit.SECONDS);
+		executor.shutdown();
+	}
+
+	private static Throwable fromOtherThread(GuardedDataSource dataSource) throws Exception {
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			return executor.submit(() -> {
+				try (Connection connection = dataSource.getConnection()) {
+					return (Throwable) null;
+				} catch (RuntimeException e) {
+					return e;
+				}
+			}).get(5, TimeUnit.SECONDS);
+		}
+	}
+
+	private static JdbcDataSource h2() {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:guard_test;DB_CLOSE_DELAY=-1");
+		dataSource.setUser("sa");
+		return dataSource;
+	}
+}
@@ -0,0 +1,133 @@
+package com.example.Connect_Money_API.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// two H2 databases stand in for the primary and the replica, the test "replicates" the heartbeat by hand
+@SpringBootTest(properties = {
+		"database.replica.enabled=true",
+		"database.replica.url=" + ReplicaRoutingTests.REPLICA_URL,
+		"database.replica.username=sa",
+		"database.replica.password=",
+		"database.replica.heartbeat-interval=3600000" // the tests call beat() themselves
+})
+@ActiveProfiles("test")
+class ReplicaRoutingTests {
+
+	static final String REPLICA_URL = "jdbc:h2:mem:connectmoney_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+
+	static {
+		// the replica's schema would come from replication
+		Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+	}
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private ReplicaLagMonitor replicaLagMonitor;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private JdbcTemplate primary;
+	private JdbcTemplate replica;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		ReplicaRoutingDataSource routing = dataSource.unwrap(ReplicaRoutingDataSource.class);
+		primary = new JdbcTemplate(routing.primary());
+		replica = new JdbcTemplate(routing.replica());
+		// a row only the replica has tells where a query went
+		replica.update("MERGE INTO rate_limit_buckets (id, state, updated_at) KEY (id) VALUES (-1, NULL, CURRENT_TIMESTAMP)");
+		caughtUp();
+	}
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void readOnlyTransactionsGoToTheReplica() {
+		assertThat(readOnly()).isEqualTo("replica");
+		assertThat(readWrite()).isEqualTo("primary");
+		assertThat(new JdbcTemplate(dataSource).queryForObject(WHERE, String.class)).isEqualTo("primary"); // no transaction
+	}
+
+	@Test
+	void readsFromThePrimaryWhileTheReplicaIsBehind() {
+		replica.update("UPDATE replication_heartbeat SET beat_at = beat_at - 60000");
+		replicaLagMonitor.beat();
+		assertThat(readOnly()).isEqualTo("primary");
+
+		caughtUp();
+		assertThat(readOnly()).isEqualTo("replica");
+
+		replica.execute("ALTER TABLE replication_heartbeat RENAME TO replication_heartbeat_gone");
+		try {
+			replicaLagMonitor.beat();
+			assertThat(readOnly()).isEqualTo("primary");
+		} finally {
+			replica.execute("ALTER TABLE replication_heartbeat_gone RENAME TO replication_heartbeat");
+		}
+	}
+
+	@Test
+	void clientReadsItsOwnWritesFromThePrimaryUntilTheReplicaHasThem() {
+		authenticate("writer");
+		new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+				new JdbcTemplate(dataSource).update("UPDATE client SET failed_attempts = 0 WHERE client_id = 'writer'"));
+
+		assertThat(readOnly()).isEqualTo("primary");
+		authenticate("someone-else");
+		assertThat(readOnly()).isEqualTo("replica");
+
+		authenticate("writer");
+		replicaLagMonitor.beat(); // heartbeat after the commit, not on the replica yet
+		assertThat(readOnly()).isEqualTo("primary");
+		caughtUp();
+		assertThat(readOnly()).isEqualTo("replica");
+	}
+
+	private static final String WHERE = "SELECT CASE WHEN EXISTS (SELECT 1 FROM rate_limit_buckets WHERE id = -1) THEN 'replica' ELSE 'primary' END";
+
+	private String readOnly() {
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+		return template.execute(status -> new JdbcTemplate(dataSource).queryForObject(WHERE, String.class));
+	}
+
+	private String readWrite() {
+		return new TransactionTemplate(transactionManager).execute(status -> new JdbcTemplate(dataSource).queryForObject(WHERE, String.class));
+	}
+
+	// beat, copy the primary's heartbeats over like replication would, beat again to read them
+	private void caughtUp() {
+		replicaLagMonitor.beat();
+		replica.update("DELETE FROM replication_heartbeat");
+		List<Object[]> beats = primary.query("SELECT node, beat_at FROM replication_heartbeat",
+				(rs, i) -> new Object[]{rs.getString(1), rs.getLong(2)});
+		replica.batchUpdate("INSERT INTO replication_heartbeat (node, beat_at) VALUES (?, ?)", beats);
+		replicaLagMonitor.beat();
+	}
+
+	private static void authenticate(String clientId) {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(clientId, null, List.of()));
+	}
+}
@@ -0,0 +1,163 @@
+package com.example.Connect_Money_API.controller;
+
+import com.example.Connect_Money_API.TestClients;
+import com.example.Connect_Money_API.dto.BatchItemStatus;
+import com.example.Connect_Money_API.dto.BatchTransactionItem;
+import com.example.Connect_Money_API.dto.BatchTransactionResponse;
+import com.example.Connect_Money_API.dto.TransactionPageResponse;
+import com.example.Connect_Money_API.dto.TransactionRequest;
+import com.example.Connect_Money_API.dto.TransactionResponse;
+import com.example.Connect_Money_API.repository.ClientRepository;
+import com.example.Connect_Money_API.repository.TransactionRepository;
+import com.example.Connect_Money_API.security.JwtService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class TransactionWireFormatTests {
+
+	private static final String CBOR = "application/cbor";
+	private static final String SMILE = "application/x-jackson-smile";
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Autowired
+	private ObjectProvider<Jackson2ObjectMapperBuilder> builders;
+
+	@LocalServerPort
+	private int port;
+
+	private final HttpClient http = HttpClient.newHttpClient();
+
+	@Test
+	void createsFromCborAndListsAsCbor() throws Exception {
+		ObjectMapper cbor = builders.getObject().factory(new CBORFactory()).build();
+		String client = client();
+		String id = client + "-txn";
+
+		HttpResponse<byte[]> created = http.send(post("/v1/transactions", client, CBOR, CBOR, cbor.writeValueAsBytes(request(id)))
+				.header("idempotency-key", client + "-key").build(), HttpResponse.BodyHandlers.ofByteArray());
+		assertThat(created.statusCode()).isEqualTo(200);
+		assertThat(transactionRepository.findTransactionByTransactionId(id)).isPresent();
+
+		HttpResponse<byte[]> listed = http.send(get("/v1/transactions", client).header("Accept", CBOR).build(),
+				HttpResponse.BodyHandlers.ofByteArray());
+		assertThat(listed.headers().firstValue("Content-Type")).hasValueSatisfying(type -> assertThat(type).startsWith(CBOR));
+		TransactionPageResponse page = cbor.readValue(listed.body(), TransactionPageResponse.class);
+		assertThat(page.getTransactions()).extracting(TransactionResponse::getId).containsExactly(id);
+		assertThat(page.getTransactions().get(0).getAmount()).isEqualByComparingTo("10.50");
+		assertThat(page.getTransactions().get(0).getCreatedAt()).isEqualTo(LocalDate.of(2025, 11, 20));
+	}
+
+	@Test
+	void binaryBodiesGoThroughTheSameValidation() throws Exception {
+		ObjectMapper cbor = builders.getObject().factory(new CBORFactory()).build();
+		String client = client();
+		TransactionRequest invalid = request(client + "-txn");
+		invalid.setAmount(BigDecimal.ZERO);
+		invalid.setType("GIFT");
+
+		HttpResponse<byte[]> response = http.send(post("/v1/transactions", client, CBOR, CBOR, cbor.writeValueAsBytes(invalid))
+				.header("idempotency-key", client + "-key").build(), HttpResponse.BodyHandlers.ofByteArray());
+
+		assertThat(response.statusCode()).isEqualTo(400);
+		JsonNode errors = cbor.readTree(response.body()).get("errors");
+		assertThat(errors.has("amount")).isTrue();
+		assertThat(errors.has("type")).isTrue();
+		assertThat(transactionRepository.findTransactionByTransactionId(client + "-txn")).isEmpty();
+	}
+
+	@Test
+	void batchInSmile() throws Exception {
+		ObjectMapper smile = builders.getObject().factory(new SmileFactory()).build();
+		String client = client();
+		TransactionRequest invalid = request(client + "-txn-1");
+		invalid.setCurrency("EGPT"); // lower case is fine, four letters aren't
+
+		HttpResponse<byte[]> response = http.send(post("/v1/transactions/batch", client, SMILE, SMILE,
+				smile.writeValueAsBytes(List.of(item(client + "-key-0", request(client + "-txn-0")), item(client + "-key-1", invalid)))).build(),
+				HttpResponse.BodyHandlers.ofByteArray());
+
+		assertThat(response.statusCode()).isEqualTo(200);
+		BatchTransactionResponse batch = smile.readValue(response.body(), BatchTransactionResponse.class);
+		assertThat(batch.getResults()).extracting(result -> result.getStatus()).containsExactly(BatchItemStatus.CREATED, BatchItemStatus.INVALID);
+		assertThat(batch.getResults().get(1).getErrors()).containsKey("transaction.currency");
+	}
+
+	@Test
+	void jsonStaysTheDefault() throws Exception {
+		String client = client();
+
+		HttpResponse<String> listed = http.send(get("/v1/transactions", client).build(), HttpResponse.BodyHandlers.ofString());
+
+		assertThat(listed.statusCode()).isEqualTo(200);
+		assertThat(listed.headers().firstValue("Content-Type")).hasValueSatisfying(type -> assertThat(type).startsWith("application/json"));
+		assertThat(listed.body()).startsWith("{\"transactions\":[]");
+	}
+
+	private HttpRequest.Builder post(String path, String client, String contentType, String accept, byte[] body) {
+		return HttpRequest.newBuilder(url(path))
+				.header("Authorization", "Bearer " + jwtService.generateToken(client))
+				.header("Content-Type", contentType)
+				.header("Accept", accept)
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body));
+	}
+
+	private HttpRequest.Builder get(String path, String client) {
+		return HttpRequest.newBuilder(url(path)).header("Authorization", "Bearer " + jwtService.generateToken(client));
+	}
+
+	private String client() {
+		return TestClients.create(clientRepository, "wire");
+	}
+
+	private static BatchTransactionItem item(String idempotencyKey, TransactionRequest request) {
+		BatchTransactionItem item = new BatchTransactionItem();
+		item.setIdempotencyKey(idempotencyKey);
+		item.setTransaction(request);
+		return item;
+	}
+
+	private static TransactionRequest request(String id) {
+		TransactionRequest request = new TransactionRequest();
+		request.setId(id);
+		request.setType("PAYMENT");
+		request.setStatus("COMPLETED");
+		request.setAmount(new BigDecimal("10.50"));
+		request.setCurrency("EGP");
+		request.setCardUid("100003145552");
+		request.setCreatedAt(LocalDate.of(2025, 11, 20));
+		return request;
+	}
+
+	private URI url(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+}
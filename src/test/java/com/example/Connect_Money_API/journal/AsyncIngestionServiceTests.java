@@ -0,0 +1,130 @@
+package com.example.Connect_Money_API.journal;
+
+import com.example.Connect_Money_API.Service.IdempotencyKeyCache;
+import com.example.Connect_Money_API.dto.IngestionState;
+import com.example.Connect_Money_API.dto.TransactionRequest;
+import com.example.Connect_Money_API.dto.TransactionResult;
+import com.example.Connect_Money_API.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"transactions.async-ingestion.enabled=true",
+		"transactions.async-ingestion.journal-dir=target/test-journal/${random.uuid}",
+		"transactions.async-ingestion.drain-interval=3600000"})
+@ActiveProfiles("test")
+class AsyncIngestionServiceTests {
+
+	@Autowired
+	private AsyncIngestionService asyncIngestionService;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private IdempotencyKeyCache idempotencyKeyCache;
+
+	@Test
+	void acceptedTransactionIsPendingUntilDrained() {
+		String prefix = UUID.randomUUID().toString();
+
+		TransactionResult result = asyncIngestionService.accept(prefix + "-key", request(prefix + "-txn"), "test_client");
+		assertThat(result.getStatus()).isEqualTo(202);
+		assertThat(result.isReplayed()).isFalse();
+		assertThat(asyncIngestionService.status(prefix + "-key", "test_client")).get()
+				.extracting("state").isEqualTo(IngestionState.PENDING);
+		assertThat(transactionRepository.findTransactionByTransactionId(prefix + "-txn")).isEmpty();
+
+		// the same key again while it's still in the journal
+		assertThat(asyncIngestionService.accept(prefix + "-key", request(prefix + "-txn"), "test_client").isReplayed()).isTrue();
+
+		asyncIngestionService.drain();
+
+		assertThat(transactionRepository.findTransactionByTransactionId(prefix + "-txn")).isPresent();
+		assertThat(asyncIngestionService.status(prefix + "-key", "test_client")).get()
+				.extracting("state").isEqualTo(IngestionState.PERSISTED);
+		// other clients can't see it
+		assertThat(asyncIngestionService.status(prefix + "-key", "other_client")).isEmpty();
+	}
+
+	@Test
+	void transactionIdUsedWithAnotherKeyIsRejected() {
+		String prefix = UUID.randomUUID().toString();
+
+		asyncIngestionService.accept(prefix + "-key-1", request(prefix + "-txn"), "test_client");
+		asyncIngestionService.accept(prefix + "-key-2", request(prefix + "-txn"), "test_client");
+		asyncIngestionService.drain();
+
+		assertThat(asyncIngestionService.status(prefix + "-key-1", "test_client")).get()
+				.extracting("state").isEqualTo(IngestionState.PERSISTED);
+		assertThat(asyncIngestionService.status(prefix + "-key-2", "test_client")).get()
+				.extracting("state").isEqualTo(IngestionState.REJECTED);
+	}
+
+	@Test
+	void entryTheDbWontTakeIsRejectedWithoutHoldingUpTheOthers() {
+		String prefix = UUID.randomUUID().toString();
+		TransactionRequest tooLong = request(prefix + "-txn-2");
+		tooLong.setCardUid("9".repeat(300)); // longer than card_uid
+
+		asyncIngestionService.accept(prefix + "-key-1", request(prefix + "-txn-1"), "test_client");
+		asyncIngestionService.accept(prefix + "-key-2", tooLong, "test_client");
+		asyncIngestionService.accept(prefix + "-key-3", request(prefix + "-txn-3"), "removed_client"); // client_id would be NULL
+		asyncIngestionService.accept(prefix + "-key-4", request(prefix + "-txn-4"), "test_client");
+		asyncIngestionService.drain();
+
+		assertThat(transactionRepository.findTransactionByTransactionId(prefix + "-txn-1")).isPresent();
+		assertThat(transactionRepository.findTransactionByTransactionId(prefix + "-txn-4")).isPresent();
+		assertThat(asyncIngestionService.status(prefix + "-key-2", "test_client")).get()
+				.extracting("state").isEqualTo(IngestionState.REJECTED);
+		assertThat(asyncIngestionService.status(prefix + "-key-3", "removed_client")).get()
+				.extracting("state").isEqualTo(IngestionState.REJECTED);
+
+		// the checkpoint moved past them, what comes next isn't stuck behind them
+		asyncIngestionService.accept(prefix + "-key-5", request(prefix + "-txn-5"), "test_client");
+		asyncIngestionService.drain();
+		assertThat(asyncIngestionService.status(prefix + "-key-5", "test_client")).get()
+				.extracting("state").isEqualTo(IngestionState.PERSISTED);
+	}
+
+	@Test
+	void keyOnlyInTheDbIsReplayedInsteadOfJournaled() {
+		String prefix = UUID.randomUUID().toString();
+		// used on another node, this one's cache never saw it
+		jdbcTemplate.update("INSERT INTO idempotency_keys (idempotency_key, transaction_id, processed, response_status, created_at) VALUES (?, ?, TRUE, 200, CURRENT_TIMESTAMP(6))",
+				prefix + "-key", prefix + "-txn");
+
+		TransactionResult result = asyncIngestionService.accept(prefix + "-key", request(prefix + "-txn-retry"), "test_client");
+
+		assertThat(result.getStatus()).isEqualTo(200);
+		assertThat(result.isReplayed()).isTrue();
+		assertThat(result.getTransactionId()).isEqualTo(prefix + "-txn");
+		assertThat(idempotencyKeyCache.get(prefix + "-key")).isEqualTo(new IdempotencyKeyCache.ProcessedKey(prefix + "-txn", 200));
+		asyncIngestionService.drain();
+		assertThat(transactionRepository.findTransactionByTransactionId(prefix + "-txn-retry")).isEmpty();
+	}
+
+	private static TransactionRequest request(String id) {
+		TransactionRequest request = new TransactionRequest();
+		request.setId(id);
+		request.setType("PURCHASE");
+		request.setStatus("COMPLETED");
+		request.setAmount(new BigDecimal("10.50"));
+		request.setCurrency("USD");
+		request.setCardUid("card-1");
+		request.setCreatedAt(LocalDate.of(2025, 1, 1));
+		return request;
+	}
+}
@@ -0,0 +1,110 @@
+package com.example.Connect_Money_API.journal;
+
+import com.example.Connect_Money_API.dto.TransactionRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionJournalTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replaysEverythingAfterTheCheckpoint() throws IOException {
+		JournalPosition checkpoint;
+		try (TransactionJournal journal = new TransactionJournal(directory, 4096, objectMapper)) {
+			journal.replay();
+			checkpoint = journal.append(entry("key-0"));
+			journal.append(entry("key-1"));
+			journal.checkpoint(checkpoint);
+			journal.append(entry("key-2"));
+		}
+
+		// reopened like after a crash
+		try (TransactionJournal journal = new TransactionJournal(directory, 4096, objectMapper)) {
+			List<JournaledEntry> entries = journal.replay();
+
+			assertThat(entries).extracting(journaled -> journaled.entry().idempotencyKey()).containsExactly("key-1", "key-2");
+			assertThat(entries.get(1).entry().request().getCreatedAt()).isEqualTo(LocalDate.of(2025, 1, 1));
+
+			// new appends go after the replayed ones
+			journal.append(entry("key-3"));
+		}
+		try (TransactionJournal journal = new TransactionJournal(directory, 4096, objectMapper)) {
+			assertThat(journal.replay()).hasSize(3);
+		}
+	}
+
+	@Test
+	void rollsSegmentsAndDeletesTheDrainedOnes() throws IOException {
+		JournalPosition last = null;
+		try (TransactionJournal journal = new TransactionJournal(directory, 1024, objectMapper)) {
+			journal.replay();
+			for (int i = 0; i < 20; i++) {
+				last = journal.append(entry("key-" + i));
+			}
+			assertThat(segmentCount()).isGreaterThan(1);
+
+			journal.checkpoint(last);
+			assertThat(segmentCount()).isEqualTo(1);
+		}
+
+		try (TransactionJournal journal = new TransactionJournal(directory, 1024, objectMapper)) {
+			assertThat(journal.replay()).isEmpty();
+		}
+	}
+
+	@Test
+	void stopsAtATornRecord() throws IOException {
+		JournalPosition first;
+		try (TransactionJournal journal = new TransactionJournal(directory, 4096, objectMapper)) {
+			journal.replay();
+			first = journal.append(entry("key-0"));
+			journal.append(entry("key-1"));
+		}
+
+		// flip a byte in the second record's payload, like a write that didn't finish
+		try (FileChannel file = FileChannel.open(directory.resolve(String.format("segment-%016d.log", 0)), StandardOpenOption.WRITE)) {
+			file.write(ByteBuffer.wrap(new byte[]{'#'}), first.offset() + 20);
+		}
+
+		try (TransactionJournal journal = new TransactionJournal(directory, 4096, objectMapper)) {
+			assertThat(journal.replay()).extracting(journaled -> journaled.entry().idempotencyKey()).containsExactly("key-0");
+		}
+	}
+
+	private long segmentCount() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().startsWith("segment-")).count();
+		}
+	}
+
+	private static JournalEntry entry(String key) {
+		TransactionRequest request = new TransactionRequest();
+		request.setId("txn-" + key);
+		request.setType("PURCHASE");
+		request.setStatus("COMPLETED");
+		request.setAmount(new BigDecimal("10.50"));
+		request.setCurrency("USD");
+		request.setCardUid("card-1");
+		request.setCreatedAt(LocalDate.of(2025, 1, 1));
+		return new JournalEntry(key, "test_client", request);
+	}
+}
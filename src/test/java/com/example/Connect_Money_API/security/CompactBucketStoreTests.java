@@ -0,0 +1,56 @@
+package com.example.Connect_Money_API.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactBucketStoreTests {
+
+	private final AtomicLong nanos = new AtomicLong();
+
+	@Test
+	void limitsAndRefillsLikeAnIntervalBucket() {
+		CompactBucketStore store = new CompactBucketStore(3, 2, 60, 1_000, nanos::get);
+
+		assertThat(store.tryConsume("10.0.0.1")).isTrue();
+		assertThat(store.tryConsume("10.0.0.1")).isTrue();
+		assertThat(store.tryConsume("10.0.0.1")).isTrue();
+		assertThat(store.tryConsume("10.0.0.1")).isFalse();
+		assertThat(store.tryConsume("10.0.0.2")).isTrue(); // own bucket
+
+		advance(59);
+		assertThat(store.tryConsume("10.0.0.1")).isFalse();
+		advance(1);
+		assertThat(store.tryConsume("10.0.0.1")).isTrue();
+		assertThat(store.tryConsume("10.0.0.1")).isTrue();
+		assertThat(store.tryConsume("10.0.0.1")).isFalse();
+	}
+
+	@Test
+	void fullyRefilledBucketsStopCounting() {
+		CompactBucketStore store = new CompactBucketStore(3, 2, 60, 100_000, nanos::get);
+		for (int i = 0; i < 100; i++) {
+			store.tryConsume("10.0.0." + i);
+		}
+		assertThat(store.size()).isEqualTo(100);
+
+		advance(60);
+		assertThat(store.size()).isZero();
+	}
+
+	@Test
+	void neverHoldsMoreThanItsCapacity() {
+		CompactBucketStore store = new CompactBucketStore(3, 2, 60, 1_024, nanos::get);
+		for (int i = 0; i < 100_000; i++) {
+			store.tryConsume("ip-" + i);
+		}
+		assertThat(store.size()).isLessThanOrEqualTo(store.maxEntries());
+	}
+
+	private void advance(long seconds) {
+		nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+	}
+}
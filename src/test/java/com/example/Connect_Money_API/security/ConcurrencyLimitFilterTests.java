@@ -0,0 +1,148 @@
+package com.example.Connect_Money_API.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTests {
+
+	private final AtomicLong clock = new AtomicLong();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void shedsAboveTheLimitAndCountsIt() {
+		AdaptiveConcurrencyLimit limit = limit(5);
+
+		long[] started = new long[5];
+		for (int i = 0; i < started.length; i++) {
+			started[i] = limit.tryAcquire();
+			assertThat(started[i]).isNotNegative();
+		}
+		assertThat(limit.tryAcquire()).isEqualTo(-1);
+
+		limit.release(started[0], false);
+		assertThat(limit.tryAcquire()).isNotNegative();
+		assertThat(registry.get("http.concurrency.shed").counter().count()).isEqualTo(1);
+		assertThat(registry.get("http.concurrency.in_flight").gauge().value()).isEqualTo(5);
+	}
+
+	@Test
+	void slowResponsesCutTheLimitOncePerRound() {
+		AdaptiveConcurrencyLimit limit = limit(100);
+		long[] started = new long[10];
+		for (int i = 0; i < started.length; i++) {
+			started[i] = limit.tryAcquire();
+		}
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(2)); // over the 1s threshold
+		for (long startedAt : started) {
+			limit.release(startedAt, false);
+		}
+		assertThat(limit.limit()).isEqualTo(90); // all ten were admitted before the cut, one cut
+
+		limit.release(limit.tryAcquire(), true); // a 503 admitted after it cuts again
+		assertThat(limit.limit()).isEqualTo(81);
+
+		for (int i = 0; i < 100; i++) {
+			limit.release(limit.tryAcquire(), true);
+		}
+		assertThat(limit.limit()).isEqualTo(5); // min-limit
+		assertThat(registry.get("http.concurrency.limit").gauge().value()).isEqualTo(5);
+	}
+
+	@Test
+	void untimedReleaseLeavesTheLimitAlone() {
+		AdaptiveConcurrencyLimit limit = limit(10);
+		limit.tryAcquire();
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(5)); // a replay that waited for its first attempt
+		limit.releaseUntimed();
+
+		assertThat(limit.limit()).isEqualTo(10);
+		assertThat(limit.inFlight()).isZero();
+	}
+
+	@Test
+	void growsOnlyWhileTheLimitIsUsed() {
+		AdaptiveConcurrencyLimit limit = limit(10);
+		for (int i = 0; i < 1000; i++) {
+			limit.release(limit.tryAcquire(), false); // one at a time
+		}
+		assertThat(limit.limit()).isEqualTo(10);
+
+		for (int round = 0; round < 10; round++) {
+			long[] started = new long[limit.limit()];
+			for (int i = 0; i < started.length; i++) {
+				started[i] = limit.tryAcquire();
+			}
+			for (long startedAt : started) {
+				limit.release(startedAt, false);
+			}
+		}
+		assertThat(limit.limit()).isBetween(14, 20);
+	}
+
+	@Test
+	void filterAnswers503WithRetryAfterOnlyOnTheFullRouteGroup() throws Exception {
+		ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(registry, true, 5, 5, 100, 0.9, 3, 1000, 10000, 5000, 2000);
+		CountDownLatch inside = new CountDownLatch(5);
+		CountDownLatch done = new CountDownLatch(1);
+		FilterChain blocking = (request, response) -> {
+			inside.countDown();
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		try {
+			for (int i = 0; i < 5; i++) {
+				executor.submit(() -> {
+					filter.doFilter(new MockHttpServletRequest("GET", "/v1/transactions"), new MockHttpServletResponse(), blocking);
+					return null;
+				});
+			}
+			assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+			MockHttpServletResponse shed = new MockHttpServletResponse();
+			filter.doFilter(new MockHttpServletRequest("GET", "/v1/transactions/summary"), shed, (request, response) -> { });
+			assertThat(shed.getStatus()).isEqualTo(503);
+			assertThat(shed.getHeader("Retry-After")).isEqualTo("3");
+
+			// creates, batches and the token route have their own limits, the rest isn't limited
+			MockHttpServletResponse create = new MockHttpServletResponse();
+			filter.doFilter(new MockHttpServletRequest("POST", "/v1/transactions"), create, (request, response) -> { });
+			assertThat(create.getStatus()).isEqualTo(200);
+			MockHttpServletResponse batch = new MockHttpServletResponse();
+			filter.doFilter(new MockHttpServletRequest("POST", "/v1/transactions/batch"), batch, (request, response) -> { });
+			assertThat(batch.getStatus()).isEqualTo(200);
+			MockHttpServletResponse token = new MockHttpServletResponse();
+			filter.doFilter(new MockHttpServletRequest("POST", "/v1/protocol/openid-connect/token"), token, (request, response) -> { });
+			assertThat(token.getStatus()).isEqualTo(200);
+			MockHttpServletResponse health = new MockHttpServletResponse();
+			filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), health, (request, response) -> { });
+			assertThat(health.getStatus()).isEqualTo(200);
+		} finally {
+			done.countDown();
+			executor.shutdown();
+		}
+		assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(registry.get("http.concurrency.in_flight").tag("route", "GET /v1/transactions").gauge().value()).isZero();
+	}
+
+	private AdaptiveConcurrencyLimit limit(int initialLimit) {
+		return new AdaptiveConcurrencyLimit("/v1/transactions", initialLimit, 5, 1000, 0.9, 1000, clock::get, registry);
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CredentialVerifierTests {
+
+	private final AtomicInteger hashes = new AtomicInteger();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private volatile boolean blocking;
+
+	// stands in for BCrypt: counts calls and can be held to fill up the queue
+	private final PasswordEncoder encoder = new PasswordEncoder() {
+		@Override
+		public String encode(CharSequence rawPassword) {
+			return "hash:" + rawPassword;
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			hashes.incrementAndGet();
+			if (blocking) {
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return encode(rawPassword).equals(encodedPassword);
+		}
+	};
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CredentialVerifier verifier = new CredentialVerifier(encoder, meterRegistry, 1, 1, 5, 2, 100, 60);
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		verifier.shutdown();
+	}
+
+	@Test
+	void repeatedGoodCredentialsSkipTheHash() {
+		assertThat(verifier.matches("client", "secret", "hash:secret")).isTrue();
+		assertThat(verifier.matches("client", "secret", "hash:secret")).isTrue();
+		assertThat(hashes).hasValue(1);
+
+		// wrong secret or a rotated hash always go to the encoder
+		assertThat(verifier.matches("client", "wrong", "hash:secret")).isFalse();
+		assertThat(verifier.matches("client", "secret", "hash:rotated")).isFalse();
+		assertThat(hashes).hasValue(3);
+	}
+
+	@Test
+	void rejectsWithRetryAfterWhenTheQueueIsFull() {
+		blocking = true;
+		CompletableFuture.runAsync(() -> verifier.matches("a", "secret", "hash:secret")); // running
+		CompletableFuture.runAsync(() -> verifier.matches("b", "secret", "hash:secret")); // queued
+
+		await(() -> meterRegistry.get("security.credentials.hash.queue").gauge().value() == 1);
+
+		assertThatThrownBy(() -> verifier.matches("c", "secret", "hash:secret"))
+				.isInstanceOf(ServiceBusyException.class)
+				.extracting("retryAfterSeconds").isEqualTo(2L);
+		assertThat(meterRegistry.get("security.credentials.hash.rejected").counter().count()).isEqualTo(1);
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (!condition.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).isLessThan(deadline);
+			Thread.onSpinWait();
+		}
+	}
+}
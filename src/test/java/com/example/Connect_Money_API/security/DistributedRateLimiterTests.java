@@ -0,0 +1,81 @@
+package com.example.Connect_Money_API.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DistributedRateLimiterTests {
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private SecurityMetrics securityMetrics;
+
+	@Test
+	void nodesShareOneBucketPerKey() {
+		// two limiters on the same table behave like two API nodes
+		DistributedRateLimiter nodeA = node(0);
+		DistributedRateLimiter nodeB = node(0);
+		String key = "10.0.0." + UUID.randomUUID();
+
+		int allowed = 0;
+		for (int i = 0; i < 5; i++) {
+			allowed += nodeA.tryConsume(key) ? 1 : 0;
+			allowed += nodeB.tryConsume(key) ? 1 : 0;
+		}
+
+		assertThat(allowed).isEqualTo(6);
+	}
+
+	@Test
+	void tokenBatchingOvershootsByAtMostOneChunkPerNode() {
+		DistributedRateLimiter nodeA = node(3);
+		DistributedRateLimiter nodeB = node(3);
+		String key = "client:" + UUID.randomUUID();
+
+		int allowed = 0;
+		for (int i = 0; i < 20; i++) {
+			allowed += nodeA.tryConsume(key) ? 1 : 0;
+			allowed += nodeB.tryConsume(key) ? 1 : 0;
+		}
+
+		assertThat(allowed).isBetween(6, 6 + 2 * 3);
+	}
+
+	@Test
+	void dbDownFallsBackInsteadOfFailingTheRequest() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		SecurityMetrics metrics = new SecurityMetrics(registry);
+		DataSource down = new DriverManagerDataSource("jdbc:unreachable:rate_limit_buckets");
+		String key = "10.0.0." + UUID.randomUUID();
+
+		DistributedRateLimiter local = new DistributedRateLimiter(down, metrics, 6, 1, 3600, 1000, 0, 60_000, "local");
+		int allowed = 0;
+		for (int i = 0; i < 10; i++) {
+			allowed += local.tryConsume(key) ? 1 : 0;
+		}
+		assertThat(allowed).isEqualTo(6); // the same limit, kept per node
+
+		assertThat(new DistributedRateLimiter(down, metrics, 6, 1, 3600, 1000, 0, 60_000, "allow").tryConsume(key)).isTrue();
+		assertThat(new DistributedRateLimiter(down, metrics, 6, 1, 3600, 1000, 0, 60_000, "reject").tryConsume(key)).isFalse();
+
+		assertThat(registry.get("security.rate_limit.store_failures").tag("fallback", "local").counter().count()).isEqualTo(10);
+		assertThat(registry.get("security.rate_limit.store_failures").tag("fallback", "allow").counter().count()).isEqualTo(1);
+		assertThat(registry.get("security.rate_limit.store_failures").tag("fallback", "reject").counter().count()).isEqualTo(1);
+	}
+
+	private DistributedRateLimiter node(long syncTokens) {
+		return new DistributedRateLimiter(dataSource, securityMetrics, 6, 1, 3600, 1000, syncTokens, 60_000, "reject");
+	}
+}
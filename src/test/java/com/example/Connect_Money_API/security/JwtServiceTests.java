@@ -0,0 +1,43 @@
+package com.example.Connect_Money_API.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTests {
+
+	private SimpleMeterRegistry meterRegistry;
+	private JwtService jwtService;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		jwtService = new JwtService(100, meterRegistry);
+		ReflectionTestUtils.setField(jwtService, "secret", "test_secret_key_that_is_long_enough_for_hs256");
+		ReflectionTestUtils.setField(jwtService, "expiration", 60_000L);
+	}
+
+	@Test
+	void verifiesOnceAndServesRepeatsFromTheCache() {
+		String token = jwtService.generateToken("test_client");
+
+		assertThat(jwtService.verify(token)).get().extracting(VerifiedToken::clientId).isEqualTo("test_client");
+		assertThat(jwtService.isTokenValid(token)).isTrue();
+		assertThat(jwtService.extractClientId(token)).isEqualTo("test_client");
+
+		assertThat(meterRegistry.get("security.jwt.verified_cache.hit_ratio").gauge().value()).isEqualTo(0.5);
+	}
+
+	@Test
+	void rejectsTamperedAndExpiredTokens() {
+		String token = jwtService.generateToken("test_client");
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+		assertThat(jwtService.verify(tampered)).isEmpty();
+
+		ReflectionTestUtils.setField(jwtService, "expiration", -1_000L);
+		assertThat(jwtService.verify(jwtService.generateToken("test_client"))).isEmpty();
+	}
+}
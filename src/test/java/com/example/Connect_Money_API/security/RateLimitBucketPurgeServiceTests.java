@@ -0,0 +1,46 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.repository.RateLimitBucketRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RateLimitBucketPurgeServiceTests {
+
+	@Autowired
+	private RateLimitBucketRepository bucketRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void deletesOnlyBucketsIdleBeforeTheCutoffInChunks() throws InterruptedException {
+		// the service only runs with mode=distributed, so it's built here with chunks of 2
+		RateLimitBucketPurgeService purgeService = new RateLimitBucketPurgeService(bucketRepository, 100, 10, 60, 2, 0);
+		// far in the past so the buckets the other tests write now are left alone
+		long first = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE / 2);
+		for (int i = 0; i < 5; i++) {
+			insertBucket(first + i, LocalDateTime.of(2000, 1, 1, 0, 0).plusMinutes(i));
+		}
+		insertBucket(first + 5, LocalDateTime.of(2000, 1, 2, 0, 0));
+
+		assertThat(purgeService.purge(LocalDateTime.of(2000, 1, 1, 12, 0))).isEqualTo(5);
+		assertThat(jdbcTemplate.queryForList("SELECT id FROM rate_limit_buckets WHERE id BETWEEN ? AND ?", Long.class, first, first + 5))
+				.containsExactly(first + 5);
+		assertThat(purgeService.purge(LocalDateTime.of(2000, 1, 1, 12, 0))).isZero();
+	}
+
+	private void insertBucket(long id, LocalDateTime updatedAt) {
+		jdbcTemplate.update("INSERT INTO rate_limit_buckets (id, state, updated_at) VALUES (?, NULL, ?)", id, Timestamp.valueOf(updatedAt));
+	}
+}
@@ -0,0 +1,84 @@
+package com.example.Connect_Money_API.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTests {
+
+	private static final int MAX_ENTRIES = 100_000;
+
+	@Test
+	void moreIpsThanEntriesEvictInsteadOfGrowing() throws Exception {
+		CompactBucketStore store = new CompactBucketStore(3, 1, 60, 1_000, System::nanoTime);
+		RateLimitFilter filter = new RateLimitFilter(store, new SecurityMetrics(new SimpleMeterRegistry()));
+		FilterChain chain = (request, response) -> { };
+
+		for (int i = 0; i < 20_000; i++) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			filter.doFilterInternal(request("10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff)), response, chain);
+			assertThat(response.getStatus()).isEqualTo(200); // a new IP always starts with a full bucket
+		}
+		assertThat(store.size()).isLessThanOrEqualTo(1_000);
+
+		// a key still in use keeps its bucket
+		int allowed = 0;
+		for (int i = 0; i < 5; i++) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			filter.doFilterInternal(request("192.168.0.1"), response, chain);
+			allowed += response.getStatus() == 200 ? 1 : 0;
+		}
+		assertThat(allowed).isEqualTo(3);
+	}
+
+	// 10M filter calls, run with -Dbenchmarks=true
+	@Test
+	@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+	void tenMillionDistinctIpsKeepTheHeapFlat() throws Exception {
+		CompactBucketStore store = new CompactBucketStore(100, 10, 60, MAX_ENTRIES, System::nanoTime);
+		RateLimitFilter filter = new RateLimitFilter(store, new SecurityMetrics(new SimpleMeterRegistry()));
+		FilterChain chain = (request, response) -> { };
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		long afterFirstMillion = 0;
+		for (int i = 0; i < 10_000_000; i++) {
+			request.removeHeader("X-Forwarded-For");
+			request.addHeader("X-Forwarded-For", (i >>> 24) + "." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff));
+			filter.doFilterInternal(request, response, chain);
+
+			if (i == 1_000_000) {
+				afterFirstMillion = usedHeap();
+			}
+		}
+		long afterTenMillion = usedHeap();
+
+		System.out.printf("heap after 1M IPs: %,d KB, after 10M IPs: %,d KB, buckets: %,d%n",
+				afterFirstMillion / 1024, afterTenMillion / 1024, store.size());
+		assertThat(store.size()).isLessThanOrEqualTo(MAX_ENTRIES);
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(afterTenMillion - afterFirstMillion).isLessThan(8L * 1024 * 1024);
+	}
+
+	private static MockHttpServletRequest request(String ip) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("X-Forwarded-For", ip);
+		return request;
+	}
+
+	private static long usedHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.Connect_Money_API.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureObservability(tracing = false) // Boot turns the Prometheus registry off in tests otherwise
+class SecurityMetricsTests {
+
+	@Autowired
+	private JwtService jwtService;
+
+	@LocalServerPort
+	private int port;
+
+	@LocalManagementPort
+	private int managementPort;
+
+	private final HttpClient http = HttpClient.newHttpClient();
+
+	@Test
+	void routesAreTaggedWithoutIds() {
+		assertThat(SecurityMetrics.route("/v1/transactions")).isEqualTo("/v1/transactions");
+		assertThat(SecurityMetrics.route("/v1/transactions/ingestion/abc-123")).isEqualTo("/v1/transactions/ingestion/{idempotencyKey}");
+		assertThat(SecurityMetrics.route("/wp-admin/setup.php")).isEqualTo("other");
+	}
+
+	@Test
+	void prometheusScrapeIsOpenOnTheManagementPortAndHasOurMeters() throws Exception {
+		HttpResponse<String> token = http.send(HttpRequest.newBuilder(url(port, "/v1/protocol/openid-connect/token"))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString("grantType=Client_Credentials&clientId=nobody&clientSecret=wrong"))
+				.build(), HttpResponse.BodyHandlers.ofString());
+		assertThat(token.statusCode()).isEqualTo(401);
+
+		jwtService.verify(jwtService.generateToken("metrics-client"));
+
+		HttpResponse<String> scrape = http.send(HttpRequest.newBuilder(url(managementPort, "/actuator/prometheus")).build(),
+				HttpResponse.BodyHandlers.ofString());
+
+		assertThat(scrape.statusCode()).isEqualTo(200);
+		assertThat(scrape.body())
+				.contains("security_auth_authenticate_seconds_count{outcome=\"failure\"}")
+				.contains("security_auth_authenticate_seconds_bucket")
+				.contains("security_jwt_verify_seconds_count{cache=\"miss\",result=\"valid\"}")
+				.contains("transactions_process_stage_seconds")
+				.contains("api_exceptions_total{exception=\"SecurityException\",status=\"401\"}")
+				.contains("hikaricp_connections_active");
+	}
+
+	@Test
+	void actuatorIsNotOnThePublicPort() throws Exception {
+		HttpResponse<String> scrape = http.send(HttpRequest.newBuilder(url(port, "/actuator/prometheus")).build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertThat(scrape.statusCode()).isIn(401, 403, 404);
+	}
+
+	@Test
+	void otherActuatorEndpointsStayClosed() throws Exception {
+		HttpResponse<String> env = http.send(HttpRequest.newBuilder(url(managementPort, "/actuator/env")).build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertThat(env.statusCode()).isIn(401, 403, 404);
+	}
+
+	private URI url(int port, String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+}
@@ -0,0 +1,184 @@
+package com.example.Connect_Money_API.security;
+
+import com.example.Connect_Money_API.model.Client;
+import com.example.Connect_Money_API.repository.ClientRepository;
+import com.example.Connect_Money_API.repository.RevokedTokenRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the refresh only runs when a test calls it
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "security.jwt.revocation.refresh-interval=3600000")
+@ActiveProfiles("test")
+class TokenRevocationTests {
+
+	private static final String SECRET = "revocation-test-secret";
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private RevokedTokenRepository revokedTokenRepository;
+
+	@Autowired
+	private TokenRevocations tokenRevocations;
+
+	@Autowired
+	private ClientCache clientCache;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@LocalServerPort
+	private int port;
+
+	private final HttpClient http = HttpClient.newHttpClient();
+
+	@Test
+	void revokedTokenIsRejectedAndTheOthersKeepWorking() throws Exception {
+		String clientId = client();
+		String revoked = token(clientId);
+		String kept = token(clientId);
+		double lookups = lookups("revoked");
+
+		assertThat(form("/revoke", "clientId=" + clientId + "&clientSecret=" + SECRET + "&token=" + revoked)).isEqualTo(200);
+
+		assertThat(transactions(revoked)).isNotEqualTo(200);
+		assertThat(transactions(revoked)).isNotEqualTo(200);
+		assertThat(transactions(kept)).isEqualTo(200);
+		assertThat(lookups("revoked") - lookups).isEqualTo(1); // the second time the answer is cached
+	}
+
+	@Test
+	void onlyTheOwnerCanRevokeAToken() throws Exception {
+		String owner = client();
+		String someoneElse = client();
+		String token = token(owner);
+
+		assertThat(form("/revoke", "clientId=" + someoneElse + "&clientSecret=" + SECRET + "&token=" + token)).isEqualTo(200);
+		assertThat(form("/revoke", "clientId=" + owner + "&clientSecret=wrong&token=" + token)).isEqualTo(401);
+		assertThat(form("/revoke", "clientId=" + owner + "&clientSecret=" + SECRET + "&token=not-a-jwt")).isEqualTo(200);
+
+		assertThat(transactions(token)).isEqualTo(200);
+	}
+
+	@Test
+	void revokeAllRejectsTokensIssuedBeforeTheWatermark() throws Exception {
+		String clientId = client();
+		String token = token(clientId);
+
+		String anHourAgo = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS).toString();
+		assertThat(form("/revoke-all", "clientId=" + clientId + "&clientSecret=" + SECRET + "&before=" + encode(anHourAgo))).isEqualTo(200);
+		assertThat(transactions(token)).isEqualTo(200);
+
+		assertThat(form("/revoke-all", "clientId=" + clientId + "&clientSecret=" + SECRET)).isEqualTo(200);
+		assertThat(transactions(token)).isNotEqualTo(200);
+
+		// iat has seconds only, a token from the watermark's second is revoked too
+		Thread.sleep(1000 - System.currentTimeMillis() % 1000 + 50);
+		assertThat(transactions(token(clientId))).isEqualTo(200);
+	}
+
+	@Test
+	void revocationFromAnotherNodeShowsUpAfterARefresh() throws Exception {
+		String clientId = client();
+		String token = jwtService.generateToken(clientId);
+		VerifiedToken verified = jwtService.verify(token).orElseThrow();
+		assertThat(transactions(token)).isEqualTo(200);
+
+		// written by another node, this one's filter doesn't know it yet
+		revokedTokenRepository.insert(verified.tokenId(), clientId, LocalDateTime.now().plusHours(1), LocalDateTime.now());
+		assertThat(transactions(token)).isEqualTo(200);
+
+		tokenRevocations.refresh();
+		assertThat(transactions(token)).isNotEqualTo(200);
+	}
+
+	@Test
+	void tokensOfAnInactiveClientAreRejected() throws Exception {
+		String clientId = client();
+		String token = token(clientId);
+		assertThat(transactions(token)).isEqualTo(200);
+
+		Client client = clientRepository.findClientByClientId(clientId).orElseThrow();
+		client.setActive(false);
+		clientRepository.save(client);
+		clientCache.invalidate(clientId);
+
+		assertThat(transactions(token)).isNotEqualTo(200);
+		assertThat(transactions(jwtService.generateToken("nobody-" + UUID.randomUUID()))).isNotEqualTo(200);
+	}
+
+	private String client() {
+		String clientId = "revocation-" + UUID.randomUUID();
+		clientRepository.save(Client.builder()
+				.clientId(clientId)
+				.clientSecret(passwordEncoder.encode(SECRET))
+				.active(true)
+				.failedAttempts(0)
+				.build());
+		return clientId;
+	}
+
+	private String token(String clientId) throws Exception {
+		HttpResponse<String> response = http.send(HttpRequest.newBuilder(url("/v1/protocol/openid-connect/token"))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString("grantType=Client_Credentials&clientId=" + clientId + "&clientSecret=" + SECRET))
+				.build(), HttpResponse.BodyHandlers.ofString());
+		assertThat(response.statusCode()).isEqualTo(200);
+		return objectMapper.readTree(response.body()).get("access_token").asText();
+	}
+
+	private int form(String path, String body) throws Exception {
+		return http.send(HttpRequest.newBuilder(url("/v1/protocol/openid-connect" + path))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	private int transactions(String token) throws Exception {
+		return http.send(HttpRequest.newBuilder(url("/v1/transactions"))
+				.header("Authorization", "Bearer " + token)
+				.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	private double lookups(String result) {
+		var counter = meterRegistry.find("security.jwt.revocation.lookups").tag("result", result).counter();
+		return counter == null ? 0 : counter.count();
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private URI url(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+}
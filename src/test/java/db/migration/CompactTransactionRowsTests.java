@@ -0,0 +1,68 @@
+package db.migration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the old and the new columns side by side, as V12 leaves them, in a database of its own
+class CompactTransactionRowsTests {
+
+	private Connection connection;
+
+	@BeforeEach
+	void legacyRows() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:compact_rows;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE client (id BIGINT PRIMARY KEY, client_id VARCHAR(255))");
+			statement.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, type VARCHAR(255), status VARCHAR(255),"
+					+ " amount DECIMAL(38,2), currency VARCHAR(255), client_id VARCHAR(255),"
+					+ " type_code TINYINT DEFAULT 0, status_code TINYINT DEFAULT 0, amount_minor BIGINT DEFAULT 0,"
+					+ " currency_code CHAR(3) DEFAULT '', client_ref BIGINT DEFAULT 0)");
+			statement.execute("INSERT INTO client VALUES (1, 'client-a')");
+			statement.execute("INSERT INTO transactions (id, type, status, amount, currency, client_id) VALUES"
+					+ " (1, 'transfer', 'COMPLETED', 100.50, 'egp', 'client-a'),"
+					+ " (2, 'TRANSFER', 'COMPLETED', 100.00, 'JPY', 'client-a'),"
+					+ " (3, 'TRANSFER', 'COMPLETED', 100.50, 'JPY', 'client-a'),"
+					+ " (4, 'TRANSFER', 'COMPLETED', 12.34, 'KWD', 'client-a'),"
+					+ " (5, 'TRANSFER', 'COMPLETED', 100.50, 'ABC', 'client-a')");
+		}
+	}
+
+	@AfterEach
+	void dropDatabase() throws Exception {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		connection.close();
+	}
+
+	@Test
+	void convertsOnlyWhatFitsExactly() throws Exception {
+		CompactTransactionRows.backfill(connection, "transactions");
+
+		assertThat(row(1)).isEqualTo("EGP/10050");
+		assertThat(row(2)).isEqualTo("JPY/100");
+		assertThat(row(4)).isEqualTo("KWD/12340");
+		// not rounded to 101 yen, not given two decimals for a code nobody knows
+		assertThat(row(3)).isEqualTo("JPY/0");
+		assertThat(row(5)).isEqualTo("/0");
+
+		assertThat(CompactTransactionRows.notFilled(connection, "transactions"))
+				.containsExactlyInAnyOrder("TRANSFER/COMPLETED/JPY/100.50/client-a", "TRANSFER/COMPLETED/ABC/100.50/client-a");
+	}
+
+	private String row(long id) throws Exception {
+		try (Statement statement = connection.createStatement();
+			 ResultSet rs = statement.executeQuery("SELECT currency_code, amount_minor FROM transactions WHERE id = " + id)) {
+			rs.next();
+			return rs.getString(1).trim() + "/" + rs.getLong(2);
+		}
+	}
+}